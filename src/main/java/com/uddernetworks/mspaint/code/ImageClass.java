@@ -3,9 +3,12 @@ package com.uddernetworks.mspaint.code;
 import com.uddernetworks.mspaint.code.languages.LanguageHighlighter;
 import com.uddernetworks.mspaint.main.LetterFileWriter;
 import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.main.RasterCache;
 import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.ocr.BandScanner;
 import com.uddernetworks.mspaint.ocr.FontData;
 import com.uddernetworks.mspaint.ocr.ImageCompare;
+import com.uddernetworks.mspaint.ocr.OCRMetrics;
 import com.uddernetworks.newocr.recognition.ScannedImage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +27,12 @@ public class ImageClass {
 
     private File inputImage;
     private ScannedImage scannedImage;
+    private BufferedImage scannedRaster; // The image as it was when scannedImage was created, used to find changed lines
+
+    // The font and training version scannedImage was created with, as its lines are only reused while both match
+    private FontData scannedFont;
+    private long scannedTrainVersion;
+
     private String text;
     private String trimmedText;
     private LetterFileWriter letterFileWriter;
@@ -52,10 +61,29 @@ public class ImageClass {
         final String prefix = "[" + this.inputImage.getName() + "] ";
 
         long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
         ImageCompare imageCompare = new ImageCompare();
 
-        this.scannedImage = imageCompare.getText(this.inputImage, this.mainGUI, this.startupLogic);
+        var ocrManager = this.startupLogic.getOCRManager();
+        var fontData = ocrManager.getActiveFont();
+        var trainVersion = fontData.getTrainVersion();
+
+        // After retraining or switching fonts the previous lines are stale, so the whole image is scanned again
+        var reusable = fontData == this.scannedFont && trainVersion == this.scannedTrainVersion;
+        var previous = reusable ? this.scannedImage : null;
+        var previousRaster = reusable ? this.scannedRaster : null;
+        var raster = readRaster();
+
+        this.scannedImage = imageCompare.getText(this.inputImage, this.mainGUI, this.startupLogic, file ->
+                BandScanner.rescanChanged(fontData.getScan(), previous, previousRaster, file, raster).orElseGet(() -> ocrManager.scanImage(file)));
+        this.scannedRaster = raster;
+        this.scannedFont = fontData;
+        this.scannedTrainVersion = trainVersion;
+
+        var letters = 0;
+        for (int i = 0; i < this.scannedImage.getLineCount(); i++) letters += this.scannedImage.getLine(i).size();
+        OCRMetrics.getInstance().recordScan(letters, System.nanoTime() - startNanos);
 
         var leadingStripped = this.scannedImage.stripLeadingSpaces();
         if (leadingStripped.getLineCount() == 0) {
@@ -96,6 +124,15 @@ public class ImageClass {
         LOGGER.info(prefix + "Finished writing to file in " + (System.currentTimeMillis() - start) + "ms");
     }
 
+    private BufferedImage readRaster() {
+        try {
+            return RasterCache.getInstance().getImage(this.inputImage);
+        } catch (IOException e) {
+            LOGGER.error("Unable to read " + this.inputImage.getName() + ", it will be fully rescanned", e);
+            return null;
+        }
+    }
+
     private boolean verifyScannable() {
         FontData fontData;
         var ocrManager = this.startupLogic.getOCRManager();
@@ -1,26 +1,22 @@
 package com.uddernetworks.mspaint.code.highlighter;
 
 import com.uddernetworks.mspaint.code.ImageClass;
+import com.uddernetworks.mspaint.main.PNGWriter;
 import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.ocr.FontMetrics;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.recognition.ScannedImage;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import org.apache.batik.transcoder.TranscoderException;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
-import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 public class AngrySquiggleHighlighter {
 
@@ -88,7 +84,7 @@ public class AngrySquiggleHighlighter {
             }
         }
 
-        ImageIO.write(image, "png", highlightedFile);
+        PNGWriter.getInstance().write(image, highlightedFile, PNGWriter.Profile.FAST);
     }
 
     private boolean isInBounds(int x, int y) {
@@ -99,25 +95,16 @@ public class AngrySquiggleHighlighter {
     }
 
     private void getLineAndLength(int lineNumber, int columnNumber, int length) throws IOException, TranscoderException {
-        var actions = this.startupLogic.getOCRManager().getActions();
         int xIndex;
         int yIndex;
         int pixelLength;
-        int fontSize = 0;
+        int fontSize = (int) this.startupLogic.getOCRManager().getFontMetrics(this.scannedImage).getLineSize(lineNumber);
 
         List<ImageLetter> line = this.scannedImage.getLine(lineNumber);
         ImageLetter first = line.get(0);
         ImageLetter last = line.get(line.size() - 1);
         ImageLetter calcXY;
 
-        int i = 0;
-        Optional<ImageLetter> letterOptional;
-        while ((letterOptional = this.scannedImage.letterAt(i++)).isPresent()) {
-            var letter = letterOptional.get();
-            if (letter.getLetter() == ' ') continue;
-            fontSize = (int) actions.getFontSize(letter).getAsDouble();
-        }
-
         int extraSquigglePadding = 0;
 
         if (columnNumber == -1) {
@@ -156,20 +143,13 @@ public class AngrySquiggleHighlighter {
         var centerPopulator = this.startupLogic.getCenterPopulator();
         centerPopulator.generateCenters(fontSize);
 
-        var descriptiveStatistics = new DescriptiveStatistics();
-
-        var sizes = imageLetters
-                .stream()
-                .map(imageLetter -> (double) imageLetter.getHeight() + imageLetter.getY())
-                .peek(descriptiveStatistics::addValue)
-                .collect(Collectors.toCollection(DoubleArrayList::new));
-
-        var lowerBound = descriptiveStatistics.getPercentile(40);
-        var upperBound = descriptiveStatistics.getPercentile(60);
-
-        sizes.removeIf((Predicate<Double>) value -> value > upperBound || value < lowerBound);
+        var bottoms = new double[imageLetters.size()];
+        for (int i = 0; i < bottoms.length; i++) {
+            var imageLetter = imageLetters.get(i);
+            bottoms[i] = imageLetter.getHeight() + imageLetter.getY();
+        }
 
-        return (int) sizes.stream().mapToDouble(Double::valueOf).average().orElse(0);
+        return (int) FontMetrics.trimmedMean(bottoms, 40, 60);
     }
 
     private int getRoundedSquiggleLength(int originalLength) {
@@ -3,7 +3,7 @@ package com.uddernetworks.mspaint.code.languages;
 import com.uddernetworks.mspaint.code.ImageClass;
 import com.uddernetworks.mspaint.code.lexer.javascript.JavaScriptLexer;
 import com.uddernetworks.mspaint.code.lexer.javascript.JavaScriptParser;
-import com.uddernetworks.mspaint.texteditor.LetterGenerator;
+import com.uddernetworks.mspaint.texteditor.GlyphBitmap;
 import org.antlr.v4.runtime.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,12 +65,7 @@ public class LanguageHighlighter {
                     var image = original.getSubimage(letter.getX(), letter.getY(), letter.getWidth(), letter.getHeight());
                     image = grabRealSub(original, letter);
                     image = trimImage(image);
-                    var values = LetterGenerator.createGrid(image);
-                    LetterGenerator.toGrid(image, values, color);
-
-                    var grid = LetterGenerator.trim(values);
-
-                    letter.setData(grid);
+                    letter.setData(GlyphBitmap.of(image).recolor(color).trim());
                 }
             }
         } catch (Exception e) {
@@ -6,10 +6,9 @@ import com.jfoenix.controls.JFXDecorator;
 import com.jfoenix.controls.JFXTextField;
 import com.uddernetworks.mspaint.cmd.Commandline;
 import com.uddernetworks.mspaint.code.languages.ExtraCreationOptions;
-import com.uddernetworks.mspaint.main.LetterFileWriter;
 import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.texteditor.TextRenderer;
 import com.uddernetworks.mspaint.util.Browse;
-import com.uddernetworks.newocr.recognition.ScannedImage;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -29,10 +28,6 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.concurrent.ExecutionException;
 
-import static com.uddernetworks.mspaint.texteditor.TextEditorManager.applyPadding;
-import static com.uddernetworks.mspaint.texteditor.TextEditorManager.generateLetterGrid;
-import static com.uddernetworks.mspaint.texteditor.TextEditorManager.getBiggestCoordinates;
-
 public class JavaCreationExtraOptions extends ExtraCreationOptions {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JavaCreationExtraOptions.class);
@@ -164,18 +159,8 @@ public class JavaCreationExtraOptions extends ExtraCreationOptions {
         help.setOnAction(event -> Browse.browse("https://github.com/MSPaintIDE/MSPaintIDE/blob/master/README.md"));
     }
 
-    private BufferedImage createImage(String text) throws IOException, ExecutionException, InterruptedException {
-        var padding = 15;
-        ScannedImage letterGrid = generateLetterGrid(mainGUI.getStartupLogic(), null, text);
-        var coords = getBiggestCoordinates(letterGrid);
-        applyPadding(letterGrid, padding, padding);
-
-        BufferedImage bufferedImage = new BufferedImage(coords[0] + padding * 2, coords[1] + padding * 2, BufferedImage.TYPE_INT_ARGB);
-
-        LetterFileWriter letterFileWriter = new LetterFileWriter(letterGrid, bufferedImage, null);
-        letterFileWriter.writeToFile();
-
-        return letterFileWriter.getImage();
+    private BufferedImage createImage(String text) throws ExecutionException, InterruptedException {
+        return new TextRenderer(mainGUI.getStartupLogic()).render(text, 15);
     }
 
 }
@@ -60,6 +60,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.uddernetworks.mspaint.code.lsp.LSStatus.INITIALIZED;
 import static com.uddernetworks.mspaint.code.lsp.LSStatus.STARTED;
@@ -205,6 +206,7 @@ public class DefaultLanguageServerWrapper implements LanguageServerWrapper {
             var diagnosticManager = this.startupLogic.getDiagnosticManager();
             diagnosticManager.pauseDiagnostics();
             try {
+                var documents = new ArrayList<Document>();
                 Files.walk(inputFile.toPath(), FileVisitOption.FOLLOW_LINKS)
                         .map(Path::toFile)
                         .filter(File::isFile)
@@ -212,15 +214,27 @@ public class DefaultLanguageServerWrapper implements LanguageServerWrapper {
                         .forEach(path -> {
                             try {
                                 if (!watcher.keepFromFilters(path)) return;
-                                var document = this.documentManager.getDocument(path);
-                                if (this.useInputForWorkspace) document.setUseRelativeToDirectory(file);
-                                writeIfApplicable(document);
-                                document.open();
-                                highlightFile(document);
+                                documents.add(this.documentManager.getDocument(path));
                             } catch (Exception e) {
                                 LOGGER.error("Error", e);
                             }
                         });
+
+                // Scanning is done up front in parallel, as opening documents has to be done in order
+                var imageClasses = documents.stream().map(Document::getImageClass).collect(Collectors.toList());
+                this.startupLogic.getOCRManager().getScanExecutor().scanAll(imageClasses, this.startupLogic.getMainGUI()).join();
+
+                documents.forEach(document -> {
+                    try {
+                        if (this.useInputForWorkspace) document.setUseRelativeToDirectory(file);
+                        document.getImageClass().getScannedImage().ifPresent(ignored -> document.setText(document.getImageClass().getText()));
+                        writeIfApplicable(document);
+                        document.open();
+                        highlightFile(document);
+                    } catch (Exception e) {
+                        LOGGER.error("Error", e);
+                    }
+                });
             } catch (IOException e) {
                 LOGGER.error("An error has occurred while initially walking workspace files", e);
             }
@@ -252,17 +266,22 @@ public class DefaultLanguageServerWrapper implements LanguageServerWrapper {
                                 break;
                             case MODIFY:
                                 LOGGER.info("Modify document event {}", finalChangedFile.getAbsolutePath());
-                                document = this.documentManager.getDocument(finalChangedFile);
+                                var modified = document = this.documentManager.getDocument(finalChangedFile);
+
+                                // Rapid writes are coalesced by the scheduler, and stale scans are dropped before reaching the LSP
+                                this.startupLogic.getOCRManager().getScanScheduler().schedule(finalChangedFile, job -> {
+                                    var imageClass = modified.getImageClass();
+                                    imageClass.scan();
+                                    if (job.isCancelled()) return;
 
-                                var imageClass = document.getImageClass();
-                                imageClass.scan();
-                                document.setText(imageClass.getText());
+                                    modified.setText(imageClass.getText());
 
-                                writeIfApplicable(document);
+                                    writeIfApplicable(modified);
 
-                                if (!document.isOpened()) document.open();
+                                    if (!modified.isOpened()) modified.open();
 
-                                document.modifyText(document.getText());
+                                    modified.modifyText(modified.getText());
+                                });
                                 break;
                             case DELETE:
                                 LOGGER.info("Delete document event {}", finalChangedFile.getAbsolutePath());
@@ -272,6 +291,7 @@ public class DefaultLanguageServerWrapper implements LanguageServerWrapper {
 
                         if (document != null) {
                             var imageClass = document.getImageClass();
+                            this.startupLogic.getOCRManager().getScanScheduler().setFocusedFile(imageClass.getInputImage());
                             this.startupLogic.runRPC(rpcManager -> rpcManager.setFileEditing(imageClass.getInputImage().getName()));
                             if (type == WatchType.CREATE && imageClass.getScannedImage().isPresent())
                                 highlightFile(document);
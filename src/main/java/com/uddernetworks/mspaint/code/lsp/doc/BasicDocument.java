@@ -110,8 +110,10 @@ public class BasicDocument implements Document {
 
     @Override
     public void notifyOfTextChange() {
-        this.imageClass.scan();
-        modifyText(this.imageClass.getText());
+        this.imageClass.getStartupLogic().getOCRManager().getScanScheduler().schedule(this.file, job -> {
+            this.imageClass.scan();
+            if (!job.isCancelled()) modifyText(this.imageClass.getText());
+        });
     }
 
     @Override
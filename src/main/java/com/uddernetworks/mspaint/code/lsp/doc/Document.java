@@ -30,7 +30,8 @@ public interface Document {
 
     /**
      * Does the same thing as {@link Document#modifyText(String)}, but it forces the document to scan the internal
-     * {@link ImageClass} to receive the text contents, then send it to the LSP server.
+     * {@link ImageClass} to receive the text contents, then send it to the LSP server. The scan is queued on the
+     * {@link com.uddernetworks.mspaint.ocr.ScanScheduler}, so this returns before the text has been updated.
      */
     void notifyOfTextChange();
 
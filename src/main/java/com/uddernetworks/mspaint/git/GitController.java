@@ -164,6 +164,7 @@ public class GitController {
             String relative = getRelativeClass(file);
             if (file.getName().endsWith(".png")) {
                 ImageClass imageClass = new ImageClass(file, mainGUI);
+                imageClass.scan();
                 relative = relative.replace(".png", ".java");
 
                 if (source == null) {
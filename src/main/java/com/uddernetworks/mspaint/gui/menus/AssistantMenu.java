@@ -1,7 +1,6 @@
 package com.uddernetworks.mspaint.gui.menus;
 
 import com.uddernetworks.mspaint.code.BuildSettings;
-import com.uddernetworks.mspaint.code.ImageClass;
 import com.uddernetworks.mspaint.gui.BindItem;
 import com.uddernetworks.mspaint.gui.MenuBind;
 import com.uddernetworks.mspaint.main.MainGUI;
@@ -50,7 +49,7 @@ public class AssistantMenu extends MenuBind {
                                     var language = mainGUI.getCurrentLanguage();
                                     language.indexFiles().ifPresentOrElse(imageClasses -> {
                                         try {
-                                            imageClasses.forEach(ImageClass::scan);
+                                            this.mainGUI.getStartupLogic().getOCRManager().getScanExecutor().scanAll(imageClasses, this.mainGUI).join();
                                             language.highlightAll(imageClasses);
                                         } catch (IOException e) {
                                             LOGGER.error("Error while highlighting images", e);
@@ -6,6 +6,7 @@ import com.uddernetworks.mspaint.gui.window.CreateProjectWindow;
 import com.uddernetworks.mspaint.gui.window.SettingsWindow;
 import com.uddernetworks.mspaint.main.FileDirectoryChooser;
 import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.main.PNGWriter;
 import com.uddernetworks.mspaint.main.ProjectFileFilter;
 import com.uddernetworks.mspaint.project.ProjectManager;
 import com.uddernetworks.mspaint.settings.Setting;
@@ -14,7 +15,6 @@ import com.uddernetworks.mspaint.texteditor.TextEditorManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -51,7 +51,7 @@ public class FileMenu extends MenuBind {
 
                     BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_INT_ARGB);
                     MainGUI.clearImage(image);
-                    ImageIO.write(image, "png", usingFile);
+                    PNGWriter.getInstance().write(image, usingFile, PNGWriter.Profile.DEFAULT);
 
                     TextEditorManager.openPaint(file, SettingsManager.getInstance().getSetting(Setting.INJECT_AUTO_NEW));
                 } catch (IOException | InterruptedException e) {
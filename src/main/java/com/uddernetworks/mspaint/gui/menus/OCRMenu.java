@@ -11,7 +11,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.CompletableFuture;
 
 public class OCRMenu extends MenuBind {
 
@@ -47,9 +46,7 @@ public class OCRMenu extends MenuBind {
 
         final long start = System.currentTimeMillis();
         var fontData = this.mainGUI.getStartupLogic().getOCRManager().getActiveFont();
-        CompletableFuture.runAsync(() -> {
-            fontData.getTrain().trainImage(file);
-        }).thenRun(() -> {
+        fontData.getTrainingPipeline().train(file).thenRun(() -> {
             LOGGER.info("Completed training in " + (System.currentTimeMillis() - start) + "ms");
             this.mainGUI.updateLoading(0, 1);
             this.mainGUI.setStatusText(null);
@@ -80,10 +77,12 @@ public class OCRMenu extends MenuBind {
 
         long start = System.currentTimeMillis();
 
-        var finalFile = file;
-        CompletableFuture.runAsync(() -> {
-            this.mainGUI.getStartupLogic().getOCRManager().getActiveFont().getTrainGenerator().generateTrainingImage(finalFile);
-        }).thenRun(() -> {
+        var fontData = this.mainGUI.getStartupLogic().getOCRManager().getActiveFont();
+        fontData.getTrainingPipeline().generate(file, (done, total) -> {
+            this.mainGUI.setStatusText("Generating train image (" + done + "/" + total + " sizes)...");
+            this.mainGUI.updateLoading(done, total);
+        }).whenComplete((ignored, throwable) -> {
+            if (throwable != null) LOGGER.error("Error while generating the train image", throwable);
             LOGGER.info("Completed generation in " + (System.currentTimeMillis() - start) + "ms");
             this.mainGUI.updateLoading(0, 1);
             this.mainGUI.setStatusText(null);
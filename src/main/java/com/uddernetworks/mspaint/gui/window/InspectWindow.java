@@ -91,7 +91,7 @@ public class InspectWindow extends Stage implements Initializable {
     public void initialize(URL location, ResourceBundle resources) {
         var ocrManager = this.mainGUI.getStartupLogic().getOCRManager();
         String name = this.inspecting.getName();
-        ScannedImage scannedImage = ocrManager.getScan().scanImage(this.inspecting).stripLeadingSpaces();
+        ScannedImage scannedImage = ocrManager.getScanCache().getOrScan(ocrManager.getActiveFont(), this.inspecting, ocrManager::scanImage).stripLeadingSpaces();
         int pxSize = (int) ocrManager.getActions().getFontSize(scannedImage.letterAt(0).get()).getAsDouble();
         int ptSize = ConversionUtils.pixelToPoint(pxSize);
 
@@ -2,6 +2,7 @@ package com.uddernetworks.mspaint.gui.window.search;
 
 import com.uddernetworks.mspaint.main.LetterFileWriter;
 import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.texteditor.GlyphBitmap;
 import com.uddernetworks.mspaint.texteditor.LetterGenerator;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.recognition.ScannedImage;
@@ -33,7 +34,7 @@ public class ReplaceManager {
         int size = (int) Math.round(ocrManager.getFontSize(scannedImage));
 
         LetterGenerator letterGenerator = new LetterGenerator();
-        var spaceOptional = this.mainGUI.getStartupLogic().getOCRManager().getActiveFont().getDatabaseManager().getAllCharacterSegments().get().stream().filter(databaseCharacter -> databaseCharacter.getLetter() == ' ').findFirst();
+        var spaceOptional = ocrManager.getActiveFont().getSpaceMetrics();
 
         if (spaceOptional.isEmpty()) {
             LOGGER.error("Couldn't find space for size: " + size);
@@ -42,17 +43,19 @@ public class ReplaceManager {
 
         var space = spaceOptional.get();
 
-        double spaceRatio = space.getAvgWidth() / space.getAvgHeight();
-        int characterBetweenSpace = (int) ((spaceRatio * size) / 3);
+        double spaceRatio = space.getRatio();
+        int characterBetweenSpace = space.getCharacterSpacing(size);
 
 
         // Get real (non-binary) pixel data for for ImageLetters
 
-        var original = scannedImage.getOriginalImage();
+        // The scanned image may be shared through the RasterCache, so the grayscale version is drawn into a copy
+        var scanned = scannedImage.getOriginalImage();
+        var original = new BufferedImage(scanned.getWidth(), scanned.getHeight(), BufferedImage.TYPE_INT_ARGB);
 
         for (int x = 0; x < original.getWidth(); x++) {
             for (int y = 0; y < original.getHeight(); y++) {
-                var originalColor = new Color(original.getRGB(x, y));
+                var originalColor = new Color(scanned.getRGB(x, y));
                 var use = (int) Math.round((originalColor.getRed() + originalColor.getGreen() + originalColor.getBlue()) / 3D);
                 original.setRGB(x, y, new Color(use, use, use).getRGB());
             }
@@ -64,13 +67,10 @@ public class ReplaceManager {
                     var image = original.getSubimage(letter.getX(), letter.getY(), letter.getWidth(), letter.getHeight());
                     image = grabRealSub(original, letter);
                     image = trimImage(image);
-                    var values = LetterGenerator.createGrid(image);
-                    LetterGenerator.toGrid(image, values);
+                    var bitmap = GlyphBitmap.of(image).trim();
 
-                    var grid = LetterGenerator.trim(values);
-
-                    letter.setValues(LetterGenerator.doubleToBooleanGrid(grid));
-                    letter.setData(grid);
+                    letter.setValues(bitmap.getMask());
+                    letter.setData(bitmap);
                 });
             });
         }
@@ -106,15 +106,15 @@ public class ReplaceManager {
             if (cha == ' ') {
                 addBy = (int) Math.floor(spaceRatio * size) - characterBetweenSpace;
             } else {
-                var letterGrid = letterGenerator.generateCharacter(cha, size, ocrManager.getActiveFont(), space);
+                var glyph = letterGenerator.getGlyph(cha, size, ocrManager.getActiveFont(), space);
                 int center = centerPopulator.getCenter(cha, size);
 
-                ImageLetter letter = new ImageLetter(cha, 0, x, (int) Math.round(lineY + center - (size / 2D)), letterGrid[0].length, letterGrid.length, 0D, 0D, 0D);
-                letter.setValues(LetterGenerator.doubleToBooleanGrid(letterGrid));
-                letter.setData(letterGrid);
+                ImageLetter letter = new ImageLetter(cha, 0, x, (int) Math.round(lineY + center - (size / 2D)), glyph.getWidth(), glyph.getHeight(), 0D, 0D, 0D);
+                letter.setValues(glyph.getMask());
+                letter.setData(glyph);
                 adding.add(letter);
 
-                addBy = letterGrid[0].length + characterBetweenSpace;
+                addBy = glyph.getWidth() + characterBetweenSpace;
             }
 
             int finalAddBy = addBy;
@@ -1,12 +1,14 @@
 package com.uddernetworks.mspaint.imagestreams;
 
 import com.uddernetworks.mspaint.logging.FormattedAppender;
+import com.uddernetworks.mspaint.main.PagedImage;
 import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
 import com.uddernetworks.newocr.utils.ConversionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
@@ -84,24 +86,32 @@ public class ImageOutputStream extends OutputStream {
         int newHeight = (linesList.size() + 1) * fontSizePx;
 
         var height = Math.max(newHeight, minHeight);
-        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        this.graphics = image.createGraphics();
-
-        graphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON));
-
-        graphics.setFont(font);
-        graphics.setPaint(this.background);
-        graphics.fillRect(0, 0, this.width, height);
-        graphics.setPaint(this.color);
-
-        for (int i = 0; i < linesList.size(); i++) {
-            graphics.drawString(linesList.get(i), 10, fontSizePx + (i * fontSizePx));
-        }
+        this.graphics.dispose();
 
+        int pageHeight = SettingsManager.getInstance().getSetting(Setting.IMAGE_PAGE_HEIGHT);
         try {
-            ImageIO.write(image, "png", location);
+            PagedImage.write(location, width, height, pageHeight, (page, top) -> {
+                var pageGraphics = page.createGraphics();
+                pageGraphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON));
+
+                pageGraphics.setFont(font);
+                pageGraphics.setPaint(this.background);
+                pageGraphics.fillRect(0, 0, this.width, page.getHeight());
+                pageGraphics.setPaint(this.color);
+
+                // Lines on both sides of a page boundary are drawn on both pages, each clipped to its own half
+                int from = Math.max(0, top / fontSizePx - 1);
+                int to = Math.min(linesList.size(), (top + page.getHeight()) / fontSizePx + 1);
+                for (int i = from; i < to; i++) {
+                    pageGraphics.drawString(linesList.get(i), 10, fontSizePx + (i * fontSizePx) - top);
+                }
+
+                pageGraphics.dispose();
+            });
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -0,0 +1,235 @@
+package com.uddernetworks.mspaint.main;
+
+import com.google.gson.GsonBuilder;
+import com.uddernetworks.mspaint.code.ImageClass;
+import com.uddernetworks.mspaint.ocr.ScanExecutor;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Scans every image in a directory without starting JavaFX, for converting large amounts of images ahead of time.
+ * The font defaults to {@link Setting#HEADLESS_FONT} and {@link Setting#HEADLESS_FONT_CONFIG}. Usage:
+ * <pre>
+ * --batch &lt;directory&gt; [--font &lt;name&gt;] [--config &lt;path&gt;] [--threads &lt;amount&gt;] [--manifest &lt;file.json&gt;]
+ * </pre>
+ * Without a manifest, the text of each image is written next to it, with the .png extension removed.
+ */
+public class BatchOCR {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(BatchOCR.class);
+
+    public static final String BATCH_FLAG = "--batch";
+
+    private File directory;
+    private String fontName;
+    private String fontConfig;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File manifest;
+    private long elapsedNanos;
+
+    /**
+     * Gets if the given program arguments request a batch scan.
+     *
+     * @param args The program arguments
+     * @return If {@link #run(String[])} should be used
+     */
+    public static boolean isBatch(String[] args) {
+        return args.length > 0 && args[0].equals(BATCH_FLAG);
+    }
+
+    /**
+     * Runs the batch scan described by the given program arguments.
+     *
+     * @param args The program arguments, starting with {@link #BATCH_FLAG}
+     * @return The exit code of the process
+     */
+    public int run(String[] args) {
+        try {
+            if (!parseArguments(args)) {
+                LOGGER.error("Usage: --batch <directory> [--font <name>] [--config <path>] [--threads <amount>] [--manifest <file.json>]");
+                return 2;
+            }
+
+            MainGUI.HEADLESS = true;
+            var startupLogic = new StartupLogic();
+            startupLogic.headlessStart(this.fontName == null && this.fontConfig == null);
+
+            // Images and the bands of split images share the one executor, so --threads bounds the whole batch
+            var ocrManager = startupLogic.getOCRManager();
+            ocrManager.setScanParallelism(this.threads);
+            var settingsManager = SettingsManager.getInstance();
+            if (this.fontName == null) this.fontName = settingsManager.getSetting(Setting.HEADLESS_FONT);
+            if (this.fontConfig == null) this.fontConfig = settingsManager.getSetting(Setting.HEADLESS_FONT_CONFIG);
+
+            ocrManager.setActiveFont(this.fontName, this.fontConfig);
+            var databaseManager = ocrManager.getActiveFont().getDatabaseManager();
+            if (databaseManager == null || !databaseManager.isTrainedSync()) {
+                LOGGER.error("The font {} has not been trained", this.fontName);
+                return 1;
+            }
+
+            List<File> images;
+            try (var paths = Files.walk(this.directory.toPath())) {
+                images = paths.map(Path::toFile)
+                        .filter(File::isFile)
+                        .filter(file -> file.getName().endsWith(".png") && !file.getName().endsWith("_highlighted.png"))
+                        .sorted(Comparator.comparing(File::getAbsolutePath))
+                        .collect(Collectors.toList());
+            }
+
+            LOGGER.info("Scanning {} images in {} with {} using {} threads", images.size(), this.directory.getAbsolutePath(), this.fontName, this.threads);
+            var results = scanAll(startupLogic, ocrManager.getScanExecutor(), images);
+            writeResults(results);
+            printSummary(results);
+            return results.stream().allMatch(result -> result.text != null) ? 0 : 1;
+        } catch (Exception e) {
+            LOGGER.error("Error while running the batch scan", e);
+            return 1;
+        }
+    }
+
+    private boolean parseArguments(String[] args) {
+        if (args.length < 2) return false;
+        this.directory = new File(args[1]);
+        if (!this.directory.isDirectory()) return false;
+
+        for (int i = 2; i < args.length; i++) {
+            if (i + 1 >= args.length) return false;
+            var value = args[++i];
+            switch (args[i - 1]) {
+                case "--font":
+                    this.fontName = value;
+                    break;
+                case "--config":
+                    this.fontConfig = value;
+                    break;
+                case "--threads":
+                    try {
+                        this.threads = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                    break;
+                case "--manifest":
+                    this.manifest = new File(value);
+                    break;
+                default:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private List<BatchResult> scanAll(StartupLogic startupLogic, ScanExecutor scanExecutor, List<File> images) {
+        var start = System.nanoTime();
+
+        try {
+            var futures = images.stream().map(image -> scanExecutor.supply(() -> {
+                var imageClass = new ImageClass(image, null, startupLogic);
+                var imageStart = System.nanoTime();
+                try {
+                    imageClass.scan();
+                } catch (Exception e) {
+                    LOGGER.error("Error while scanning " + image.getAbsolutePath(), e);
+                }
+
+                var letters = imageClass.getScannedImage().map(scannedImage -> scannedImage.getGrid().values().stream().mapToInt(List::size).sum()).orElse(0);
+                return new BatchResult(image, imageClass.getText(), letters, System.nanoTime() - imageStart);
+            })).collect(Collectors.toList());
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } finally {
+            this.elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    private void writeResults(List<BatchResult> results) throws IOException {
+        if (this.manifest != null) {
+            var manifestImages = results.stream().map(result -> {
+                var entry = new LinkedHashMap<String, Object>();
+                entry.put("image", this.directory.toPath().relativize(result.image.toPath()).toString().replace('\\', '/'));
+                entry.put("text", result.text);
+                entry.put("letters", result.letters);
+                entry.put("millis", result.nanos / 1_000_000D);
+                return entry;
+            }).collect(Collectors.toList());
+
+            var json = new LinkedHashMap<String, Object>();
+            json.put("font", this.fontName);
+            json.put("config", this.fontConfig);
+            json.put("images", manifestImages);
+            json.put("summary", createSummary(results));
+
+            Files.writeString(this.manifest.toPath(), new GsonBuilder().setPrettyPrinting().create().toJson(json));
+            LOGGER.info("Wrote manifest to {}", this.manifest.getAbsolutePath());
+            return;
+        }
+
+        for (var result : results) {
+            if (result.text == null) continue;
+            var textFile = new File(result.image.getAbsolutePath().replaceAll("\\.png$", ""));
+            Files.writeString(textFile.toPath(), result.text);
+        }
+    }
+
+    private Map<String, Object> createSummary(List<BatchResult> results) {
+        var latencies = results.stream().mapToLong(result -> result.nanos).sorted().toArray();
+        var letters = results.stream().mapToLong(result -> result.letters).sum();
+        var seconds = this.elapsedNanos / 1_000_000_000D;
+
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("images", results.size());
+        summary.put("failed", results.stream().filter(result -> result.text == null).count());
+        summary.put("letters", letters);
+        summary.put("seconds", seconds);
+        summary.put("imagesPerSecond", seconds == 0 ? 0 : results.size() / seconds);
+        summary.put("lettersPerSecond", seconds == 0 ? 0 : letters / seconds);
+        summary.put("p50Millis", percentile(latencies, 50) / 1_000_000D);
+        summary.put("p99Millis", percentile(latencies, 99) / 1_000_000D);
+        return summary;
+    }
+
+    private void printSummary(List<BatchResult> results) {
+        var summary = createSummary(results);
+        System.out.println(String.format("Scanned %d images (%d failed), %d letters in %.2fs", summary.get("images"),
+                summary.get("failed"), summary.get("letters"), summary.get("seconds")));
+        System.out.println(String.format("%.2f images/s, %.0f letters/s, p50 %.1fms, p99 %.1fms", summary.get("imagesPerSecond"),
+                summary.get("lettersPerSecond"), summary.get("p50Millis"), summary.get("p99Millis")));
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        var rank = (int) Math.ceil(percentile / 100D * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    private static class BatchResult {
+        private final File image;
+        private final String text;
+        private final int letters;
+        private final long nanos;
+
+        BatchResult(File image, String text, int letters, long nanos) {
+            this.image = image;
+            this.text = text;
+            this.letters = letters;
+            this.nanos = nanos;
+        }
+    }
+}
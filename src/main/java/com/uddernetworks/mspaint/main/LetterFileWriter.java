@@ -1,18 +1,26 @@
 package com.uddernetworks.mspaint.main;
 
+import com.uddernetworks.mspaint.texteditor.GlyphBitmap;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.recognition.ScannedImage;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class LetterFileWriter {
 
+    // The amount of letters at which lines are drawn in parallel
+    private static final int PARALLEL_LETTERS = 5000;
+
     private ScannedImage scannedImage;
     private File writeFile;
     private BufferedImage image;
@@ -26,73 +34,121 @@ public class LetterFileWriter {
     public LetterFileWriter(ScannedImage scannedImage, File readFile, File writeFile) throws IOException {
         this.scannedImage = scannedImage;
         this.writeFile = writeFile;
-        this.image = ImageIO.read(readFile);
+        this.image = RasterCache.getInstance().getImage(readFile);
     }
 
     public void writeToFile() throws IOException {
         if (scannedImage == null) return; // Silently fail
-        AtomicInteger width = new AtomicInteger(this.image.getWidth());
-        AtomicInteger height = new AtomicInteger(this.image.getHeight());
-        scannedImage.getGrid().values()
-                .stream()
-                .flatMap(Collection::stream)
-                .forEach(imageLetter -> {
-                    width.set(Math.max(imageLetter.getX() + imageLetter.getWidth() + 10, width.get()));
-                    height.set(Math.max(imageLetter.getY() + imageLetter.getHeight() + 10, height.get()));
-                });
-
-        image = new BufferedImage(width.get(), height.get(), BufferedImage.TYPE_INT_ARGB);
-        background(Color.WHITE);
-
-        scannedImage.getGrid().values().forEach(line -> {
-            line.forEach(imageLetter -> {
-                if (imageLetter.getLetter() != ' ') {
-                    writeLetterToFile(imageLetter);
+        int width = this.image.getWidth();
+        int height = this.image.getHeight();
+        int letterCount = 0;
+        for (var line : scannedImage.getGrid().values()) {
+            for (var imageLetter : line) {
+                width = Math.max(imageLetter.getX() + imageLetter.getWidth() + 10, width);
+                height = Math.max(imageLetter.getY() + imageLetter.getHeight() + 10, height);
+            }
+
+            letterCount += line.size();
+        }
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, Color.WHITE.getRGB());
+
+        // Only groups of lines whose rows don't intersect are drawn in parallel, and the lines of each group are drawn
+        // in order, so where lines overlap the later one is still drawn on top
+        var groups = groupOverlappingLines(scannedImage.getGrid().values()).stream();
+        if (letterCount >= PARALLEL_LETTERS) groups = groups.parallel();
+
+        int imageWidth = width;
+        int imageHeight = height;
+        groups.forEach(group -> {
+            for (var line : group) {
+                for (var imageLetter : line) {
+                    if (imageLetter.getLetter() != ' ') writeLetterToFile(imageLetter, pixels, imageWidth, imageHeight);
                 }
-            });
+            }
         });
 
-        if (writeFile != null) ImageIO.write(image, "png", writeFile);
+        if (writeFile != null) PNGWriter.getInstance().write(image, writeFile, PNGWriter.Profile.FAST);
     }
 
     public BufferedImage getImage() {
         return image;
     }
 
-    private void writeLetterToFile(ImageLetter imageLetter, double[][] realValues) {
-        for (int y = 0; y < realValues.length; y++) {
-            for (int x = 0; x < realValues[0].length; x++) {
-                var xyColor = (int) realValues[y][x];
-                if (xyColor != 0) image.setRGB(imageLetter.getX() + x, imageLetter.getY() + y, xyColor);
+    /**
+     * Groups lines so that the rows drawn by the lines of one group never intersect the rows of another group.
+     *
+     * @param lines The lines, in the order they're drawn
+     * @return The groups, each containing its lines in their original order
+     */
+    private List<List<List<ImageLetter>>> groupOverlappingLines(Collection<List<ImageLetter>> lines) {
+        var ranges = new ArrayList<LineRange>(lines.size());
+        int index = 0;
+        for (var line : lines) {
+            int top = Integer.MAX_VALUE;
+            int bottom = Integer.MIN_VALUE;
+            for (var imageLetter : line) {
+                if (imageLetter.getLetter() == ' ') continue;
+                top = Math.min(top, imageLetter.getY());
+                bottom = Math.max(bottom, imageLetter.getY() + getDrawnHeight(imageLetter));
+            }
+
+            if (top < bottom) ranges.add(new LineRange(index, top, bottom, line));
+            index++;
+        }
+
+        ranges.sort(Comparator.comparingInt(range -> range.top));
+
+        var groups = new ArrayList<List<List<ImageLetter>>>();
+        var group = new ArrayList<LineRange>();
+        int groupBottom = Integer.MIN_VALUE;
+        for (var range : ranges) {
+            if (range.top >= groupBottom && !group.isEmpty()) {
+                groups.add(toLines(group));
+                group = new ArrayList<>();
             }
+
+            group.add(range);
+            groupBottom = Math.max(groupBottom, range.bottom);
         }
+
+        if (!group.isEmpty()) groups.add(toLines(group));
+        return groups;
     }
 
-    private void writeLetterToFile(ImageLetter imageLetter) {
-        var data = imageLetter.getData(double[][].class).orElseGet(() ->
-                booleanToDoubleGrid(imageLetter.getValues(), imageLetter.getData(Color.class).map(Color::getRGB).orElse(Color.BLACK.getRGB())));
+    private List<List<ImageLetter>> toLines(List<LineRange> group) {
+        group.sort(Comparator.comparingInt(range -> range.index));
+        return group.stream().map(range -> range.line).collect(Collectors.toList());
+    }
 
-        writeLetterToFile(imageLetter, data);
+    // The height of the bitmap drawn for a letter, which may differ from the letter's own height
+    private int getDrawnHeight(ImageLetter imageLetter) {
+        return imageLetter.getData(GlyphBitmap.class).map(GlyphBitmap::getHeight).orElseGet(() -> {
+            var values = imageLetter.getValues();
+            return values == null ? imageLetter.getHeight() : values.length;
+        });
     }
 
-    private void background(Color color) {
-        for (int y = 0; y < this.image.getHeight(); y++) {
-            for (int x = 0; x < this.image.getWidth(); x++) {
-                this.image.setRGB(x, y, color.getRGB());
-            }
+    private static class LineRange {
+        private final int index;
+        private final int top;
+        private final int bottom;
+        private final List<ImageLetter> line;
+
+        LineRange(int index, int top, int bottom, List<ImageLetter> line) {
+            this.index = index;
+            this.top = top;
+            this.bottom = bottom;
+            this.line = line;
         }
     }
 
-    private double[][] booleanToDoubleGrid(boolean[][] grid, double value) {
-        var doubleGrid = new double[grid.length][];
-        for (int i = 0; i < doubleGrid.length; i++) {
-            var row = new double[grid[0].length];
-            for (int i1 = 0; i1 < grid[i].length; i1++) {
-                row[i1] = grid[i][i1] ? value : -1; // Isn't whitefailed to read
-            }
-            doubleGrid[i] = row;
-        }
+    private void writeLetterToFile(ImageLetter imageLetter, int[] pixels, int width, int height) {
+        var bitmap = imageLetter.getData(GlyphBitmap.class).orElseGet(() ->
+                GlyphBitmap.fromMask(imageLetter.getValues(), imageLetter.getData(Color.class).map(Color::getRGB).orElse(Color.BLACK.getRGB())));
 
-        return doubleGrid;
+        bitmap.blit(pixels, width, height, imageLetter.getX(), imageLetter.getY());
     }
 }
@@ -9,7 +9,6 @@ import com.jfoenix.controls.JFXProgressBar;
 import com.jfoenix.controls.JFXTextField;
 import com.uddernetworks.mspaint.cmd.Commandline;
 import com.uddernetworks.mspaint.code.BuildSettings;
-import com.uddernetworks.mspaint.code.ImageClass;
 import com.uddernetworks.mspaint.code.LangGUIOptionRequirement;
 import com.uddernetworks.mspaint.code.gui.LangGUIOption;
 import com.uddernetworks.mspaint.code.languages.Language;
@@ -54,7 +53,6 @@ import org.fxmisc.richtext.InlineCssTextArea;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -219,6 +217,10 @@ public class MainGUI extends Application implements Initializable {
 
         LOGGER.info("Running in dev mode: {}", DEV_MODE);
 
+        if (BatchOCR.isBatch(args)) {
+            System.exit(new BatchOCR().run(args));
+        }
+
         if (!System.getProperty("os.name").toLowerCase().contains("windows")) {
             JFrame frame = new JFrame("MS Paint IDE");
             frame.setSize(700, 200);
@@ -281,6 +283,8 @@ public class MainGUI extends Application implements Initializable {
 
                         CompletableFuture.runAsync(() -> {
                             try {
+                                var ocrManager = mainGUI.getStartupLogic().getOCRManager();
+                                if (ocrManager != null) ocrManager.getScanScheduler().setFocusedFile(new File(data));
                                 mainGUI.getStartupLogic().runRPC(rpcManager -> rpcManager.setFileEditing(new File(data).getName()));
                                 Commandline.runLiveCommand(Arrays.asList("mspaint.exe", data));
                             } catch (Exception e) {
@@ -336,7 +340,7 @@ public class MainGUI extends Application implements Initializable {
 
             BufferedImage image = new BufferedImage(600, 500, BufferedImage.TYPE_INT_ARGB);
             clearImage(image);
-            ImageIO.write(image, "png", file);
+            PNGWriter.getInstance().write(image, file, PNGWriter.Profile.DEFAULT);
 
             Runtime runtime = Runtime.getRuntime();
             Process process = runtime.exec("mspaint.exe \"" + file.getAbsolutePath() + "\"");
@@ -575,7 +579,7 @@ public class MainGUI extends Application implements Initializable {
             if (imageClassesOptional.isPresent()) {
                 var imageClasses = imageClassesOptional.get();
 
-                imageClasses.forEach(ImageClass::scan);
+                this.startupLogic.getOCRManager().getScanExecutor().scanAll(imageClasses, this).join();
 
                 language.highlightAll(imageClasses);
 
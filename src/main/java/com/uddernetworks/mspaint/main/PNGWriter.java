@@ -0,0 +1,260 @@
+package com.uddernetworks.mspaint.main;
+
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes PNGs with an encoder chosen by the {@link Profile} of the image. Files the user opens or keeps use the
+ * {@link Profile#DEFAULT} profile, while intermediate and derived images that are regenerated constantly, such as
+ * highlights and images being edited, use the {@link Profile#FAST} profile, trading file size for encoding speed.
+ */
+public class PNGWriter {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(PNGWriter.class);
+
+    private static PNGWriter instance = new PNGWriter();
+
+    private final Map<Profile, Encoder> encoders = new EnumMap<>(Profile.class);
+    private final Map<Profile, Throughput> throughputs = new EnumMap<>(Profile.class);
+
+    public enum Profile {
+        DEFAULT, // The standard ImageIO encoder, with full compression and adaptive filtering
+        FAST // No filtering and a low compression level, for images that are only read by this program
+    }
+
+    /**
+     * Encodes an image into a PNG file.
+     */
+    public interface Encoder {
+
+        /**
+         * Writes the image to the file, replacing it if it exists.
+         *
+         * @param image The image
+         * @param file The file to write
+         * @throws IOException If the file couldn't be written
+         */
+        void encode(BufferedImage image, File file) throws IOException;
+    }
+
+    private PNGWriter() {
+        this.encoders.put(Profile.DEFAULT, (image, file) -> {
+            if (!ImageIO.write(image, "png", file)) throw new IOException("No PNG writer is available for " + file.getName());
+        });
+        this.encoders.put(Profile.FAST, new FastEncoder());
+
+        for (var profile : Profile.values()) this.throughputs.put(profile, new Throughput());
+    }
+
+    public static PNGWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Writes an image as a PNG with the encoder of the given profile.
+     *
+     * @param image The image
+     * @param file The file to write
+     * @param profile The {@link Profile} of the image
+     * @throws IOException If the file couldn't be written
+     */
+    public void write(BufferedImage image, File file, Profile profile) throws IOException {
+        long start = System.nanoTime();
+        this.encoders.get(profile).encode(image, file);
+        long nanos = System.nanoTime() - start;
+
+        var pixelBytes = (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+        this.throughputs.get(profile).record(pixelBytes, nanos);
+        LOGGER.debug("Wrote {} ({}x{}) with the {} profile in {}ms, {} MB/s", file.getName(), image.getWidth(), image.getHeight(),
+                profile, String.format("%.1f", nanos / 1_000_000D), String.format("%.1f", getMegabytesPerSecond(pixelBytes, nanos)));
+    }
+
+    private static double getMegabytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : (bytes / (1024D * 1024D)) / (nanos / 1_000_000_000D);
+    }
+
+    private static class Throughput {
+        private final AtomicLong writes = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        void record(long bytes, long nanos) {
+            var writes = this.writes.incrementAndGet();
+            this.bytes.addAndGet(bytes);
+            this.nanos.addAndGet(nanos);
+
+            if (writes % 100 == 0) {
+                LOGGER.info("Written {} PNGs at an average of {} MB/s", writes, String.format("%.1f", getMegabytesPerSecond(this.bytes.get(), this.nanos.get())));
+            }
+        }
+    }
+
+    /**
+     * Writes 8-bit RGB or RGBA PNGs without filtering, deflating rows straight into fixed-size IDAT chunks. Each
+     * thread reuses its own buffers, so no memory proportional to the image is allocated, while a deflater is created
+     * for each image and ended once it's written, so its native memory is never left to finalization.
+     */
+    private static class FastEncoder implements Encoder {
+
+        private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+        private static final int CHUNK_SIZE = 64 * 1024;
+
+        private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+        @Override
+        public void encode(BufferedImage image, File file) throws IOException {
+            var state = this.state.get();
+            var width = image.getWidth();
+            var height = image.getHeight();
+            var alpha = image.getColorModel().hasAlpha();
+            var channels = alpha ? 4 : 3;
+
+            int level = SettingsManager.getInstance().getSetting(Setting.PNG_FAST_COMPRESSION);
+            state.deflater = new Deflater(Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, level)));
+            state.dataLength = 0;
+
+            var rowLength = 1 + width * channels;
+            if (state.row.length < rowLength) state.row = new byte[rowLength];
+            if (state.argb.length < width) state.argb = new int[width];
+            var row = state.row;
+
+            try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                state.channel = channel;
+                state.output.clear();
+                state.output.put(SIGNATURE);
+
+                var header = ByteBuffer.allocate(13).putInt(width).putInt(height)
+                        .put((byte) 8) // Bit depth
+                        .put((byte) (alpha ? 6 : 2)) // Colour type, RGBA or RGB
+                        .put((byte) 0).put((byte) 0).put((byte) 0); // Compression, filter and interlace methods
+                state.writeChunk("IHDR", header.array(), 13);
+
+                var direct = getDirectPixels(image);
+                for (int y = 0; y < height; y++) {
+                    int[] argb;
+                    int offset;
+                    if (direct != null) {
+                        argb = direct.pixels;
+                        offset = direct.getOffset(y);
+                    } else {
+                        argb = state.argb;
+                        offset = 0;
+                        image.getRGB(0, y, width, 1, argb, 0, width);
+                    }
+
+                    row[0] = 0; // Filter type none
+                    var index = 1;
+                    for (int x = 0; x < width; x++) {
+                        var pixel = argb[offset + x];
+                        row[index++] = (byte) (pixel >> 16);
+                        row[index++] = (byte) (pixel >> 8);
+                        row[index++] = (byte) pixel;
+                        if (alpha) row[index++] = (byte) (pixel >>> 24);
+                    }
+
+                    state.deflater.setInput(row, 0, rowLength);
+                    while (!state.deflater.needsInput()) state.deflate();
+                }
+
+                state.deflater.finish();
+                while (!state.deflater.finished()) state.deflate();
+                state.flushData();
+
+                state.writeChunk("IEND", state.data, 0);
+                state.flushOutput();
+            } finally {
+                state.deflater.end();
+                state.deflater = null;
+                state.channel = null;
+            }
+        }
+
+        // Gets the backing array of images whose pixels are stored as packed ARGB or RGB ints, including subimages
+        private DirectPixels getDirectPixels(BufferedImage image) {
+            var type = image.getType();
+            if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) return null;
+
+            var raster = image.getRaster();
+            if (!(raster.getDataBuffer() instanceof DataBufferInt) || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) return null;
+
+            var dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            var stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            return new DirectPixels(dataBuffer.getData(), stride,
+                    dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX());
+        }
+
+        private static class DirectPixels {
+            private final int[] pixels;
+            private final int stride;
+            private final int origin;
+
+            DirectPixels(int[] pixels, int stride, int origin) {
+                this.pixels = pixels;
+                this.stride = stride;
+                this.origin = origin;
+            }
+
+            int getOffset(int y) {
+                return this.origin + y * this.stride;
+            }
+        }
+
+        private static class State {
+            private Deflater deflater;
+            private final CRC32 crc = new CRC32();
+            private final byte[] data = new byte[CHUNK_SIZE];
+            private final ByteBuffer output = ByteBuffer.allocate(CHUNK_SIZE + 12);
+            private byte[] row = new byte[0];
+            private int[] argb = new int[0];
+            private int dataLength;
+            private FileChannel channel;
+
+            // Deflates into the pending IDAT data, writing it out as a chunk once full
+            void deflate() throws IOException {
+                this.dataLength += this.deflater.deflate(this.data, this.dataLength, CHUNK_SIZE - this.dataLength);
+                if (this.dataLength == CHUNK_SIZE) flushData();
+            }
+
+            void flushData() throws IOException {
+                if (this.dataLength == 0) return;
+                writeChunk("IDAT", this.data, this.dataLength);
+                this.dataLength = 0;
+            }
+
+            void writeChunk(String type, byte[] bytes, int length) throws IOException {
+                if (this.output.remaining() < length + 12) flushOutput();
+
+                var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+                this.crc.reset();
+                this.crc.update(typeBytes);
+                this.crc.update(bytes, 0, length);
+
+                this.output.putInt(length).put(typeBytes).put(bytes, 0, length).putInt((int) this.crc.getValue());
+            }
+
+            void flushOutput() throws IOException {
+                this.output.flip();
+                while (this.output.hasRemaining()) this.channel.write(this.output);
+                this.output.clear();
+            }
+        }
+    }
+}
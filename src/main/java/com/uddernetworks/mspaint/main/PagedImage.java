@@ -0,0 +1,222 @@
+package com.uddernetworks.mspaint.main;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes images that may be split into fixed-height pages. The first page is always written to the image's
+ * own file, so anything unaware of pages still sees the top of the document, and the remaining pages are written to
+ * numbered files in a sibling <code>&lt;image&gt;.pages</code> directory along with a small index. Pages are rendered
+ * and written one at a time into a single reused buffer, so writing a paged image never holds more than one page in
+ * memory.
+ */
+public class PagedImage {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(PagedImage.class);
+
+    private static final Gson GSON = new Gson();
+    private static final String INDEX_NAME = "index.json";
+
+    /**
+     * Draws part of an image onto a page.
+     */
+    public interface PageRenderer {
+
+        /**
+         * Draws the rows of the image starting at the given row onto the page. Every pixel of the page must be drawn,
+         * as the same page is reused for each part of the image.
+         *
+         * @param page The page to draw on
+         * @param top The row of the whole image at the top of the page
+         * @throws IOException If the page couldn't be drawn
+         * @throws InterruptedException If interrupted while drawing
+         */
+        void render(BufferedImage page, int top) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Writes an image as a PNG, split into pages if it's taller than the given page height.
+     *
+     * @param image The image file, which receives the first page
+     * @param width The width of the whole image
+     * @param height The height of the whole image
+     * @param pageHeight The maximum height of a page, or 0 to never split the image
+     * @param renderer Draws each page
+     * @throws IOException If a page couldn't be drawn or written
+     * @throws InterruptedException If interrupted while drawing
+     */
+    public static void write(File image, int width, int height, int pageHeight, PageRenderer renderer) throws IOException, InterruptedException {
+        deletePages(image);
+
+        if (pageHeight <= 0 || height <= pageHeight) {
+            var whole = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            renderer.render(whole, 0);
+            PNGWriter.getInstance().write(whole, image, PNGWriter.Profile.FAST);
+            RasterCache.getInstance().invalidate(image);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        var pageCount = (height + pageHeight - 1) / pageHeight;
+        var directory = getPagesDirectory(image);
+        directory.mkdirs();
+
+        var page = new BufferedImage(width, pageHeight, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < pageCount; i++) {
+            var top = i * pageHeight;
+            renderer.render(page, top);
+
+            var rows = Math.min(pageHeight, height - top);
+            PNGWriter.getInstance().write(rows == pageHeight ? page : page.getSubimage(0, 0, width, rows), getPageFile(image, i), PNGWriter.Profile.FAST);
+        }
+
+        // The index is written last, so a partially written image is only ever read as its first page
+        Files.writeString(new File(directory, INDEX_NAME).toPath(), GSON.toJson(new Index(width, height, pageHeight, pageCount)));
+        RasterCache.getInstance().invalidate(image);
+
+        LOGGER.info("Wrote {} as {} pages of {}x{} in {}ms", image.getName(), pageCount, width, pageHeight, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reads an image, stitching its pages back together if it was split.
+     *
+     * @param image The image file
+     * @return The whole image, or null if it couldn't be decoded
+     * @throws IOException If the image or any of its pages couldn't be read
+     */
+    public static BufferedImage read(File image) throws IOException {
+        var index = readIndex(image);
+        if (index == null) return ImageIO.read(image);
+
+        var stitched = new BufferedImage(index.width, index.height, BufferedImage.TYPE_INT_ARGB);
+        var pixels = ((DataBufferInt) stitched.getRaster().getDataBuffer()).getData();
+
+        for (int i = 0; i < index.pages; i++) {
+            var page = ImageIO.read(getPageFile(image, i));
+            if (page == null) throw new IOException("Unable to decode page " + i + " of " + image.getName());
+
+            // Pages resized after being written are clipped to the space they had in the index
+            var top = i * index.pageHeight;
+            var width = Math.min(index.width, page.getWidth());
+            var rows = Math.min(Math.min(index.pageHeight, index.height - top), page.getHeight());
+            page.getRGB(0, 0, width, rows, pixels, top * index.width, index.width);
+        }
+
+        return stitched;
+    }
+
+    /**
+     * Reads the raw bytes of every page of an image, in order, such as to identify its contents.
+     *
+     * @param image The image file
+     * @return The bytes of every page
+     * @throws IOException If a page couldn't be read
+     */
+    public static byte[] readBytes(File image) throws IOException {
+        var pages = getPageFiles(image);
+        if (pages.size() == 1) return Files.readAllBytes(image.toPath());
+
+        var bytes = new ByteArrayOutputStream();
+        for (var page : pages) Files.copy(page.toPath(), bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Checks if an image has been split into pages.
+     *
+     * @param image The image file
+     * @return If the image has a page index
+     */
+    public static boolean isPaged(File image) {
+        return getIndexFile(image).isFile();
+    }
+
+    /**
+     * Gets the file of every page of an image, starting with the image itself.
+     *
+     * @param image The image file
+     * @return The page files, which is only the image itself if it isn't paged
+     */
+    public static List<File> getPageFiles(File image) {
+        var index = readIndex(image);
+        if (index == null) return List.of(image);
+
+        var pages = new ArrayList<File>(index.pages);
+        for (int i = 0; i < index.pages; i++) pages.add(getPageFile(image, i));
+        return pages;
+    }
+
+    /**
+     * Deletes an image along with any pages it was split into.
+     *
+     * @param image The image file
+     * @return If the image itself was deleted
+     */
+    public static boolean delete(File image) {
+        deletePages(image);
+        return image.delete();
+    }
+
+    private static void deletePages(File image) {
+        var directory = getPagesDirectory(image);
+        var files = directory.listFiles();
+        if (files == null) return;
+
+        // The index goes first, so the image is never read with some of its pages missing
+        getIndexFile(image).delete();
+        for (var file : files) file.delete();
+        directory.delete();
+    }
+
+    private static Index readIndex(File image) {
+        var indexFile = getIndexFile(image);
+        if (!indexFile.isFile()) return null;
+
+        try {
+            var index = GSON.fromJson(Files.readString(indexFile.toPath()), Index.class);
+            if (index == null || index.pages <= 0 || index.pageHeight <= 0) return null;
+            return index;
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Unable to read the page index of " + image.getName() + ", only its first page will be used", e);
+            return null;
+        }
+    }
+
+    private static File getPagesDirectory(File image) {
+        return new File(image.getAbsoluteFile().getParentFile(), image.getName() + ".pages");
+    }
+
+    private static File getIndexFile(File image) {
+        return new File(getPagesDirectory(image), INDEX_NAME);
+    }
+
+    private static File getPageFile(File image, int page) {
+        return page == 0 ? image : new File(getPagesDirectory(image), page + ".png");
+    }
+
+    private static class Index {
+        private int width;
+        private int height;
+        private int pageHeight;
+        private int pages;
+
+        Index(int width, int height, int pageHeight, int pages) {
+            this.width = width;
+            this.height = height;
+            this.pageHeight = pageHeight;
+            this.pages = pages;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.uddernetworks.mspaint.main;
+
+import com.uddernetworks.mspaint.ocr.OCRMetrics;
+import com.uddernetworks.mspaint.ocr.OCRPhase;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A shared cache of decoded images, so each version of a file is only decoded once no matter how many times it is
+ * scanned or rescanned. Entries are keyed by the file's path, and are only valid for the modification time and size
+ * the file had when it was decoded. Cached images are handed out as they are rather than copied, so they must never
+ * be drawn on. The cache is kept under {@link Setting#RASTER_CACHE_SIZE} by
+ * evicting the least recently used images, and the garbage collector may reclaim any of them under memory pressure.
+ */
+public class RasterCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(RasterCache.class);
+
+    private static RasterCache instance = new RasterCache();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long usedBytes;
+
+    public static RasterCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the decoded image of the given file. The returned image is shared with every other caller of the same
+     * version of the file, so it must not be modified. Anything that needs to draw on it should draw on a copy.
+     *
+     * @param file The image file
+     * @return The image as {@link BufferedImage#TYPE_INT_ARGB}, or null if the file couldn't be decoded
+     * @throws IOException If the file couldn't be read
+     */
+    public BufferedImage getImage(File file) throws IOException {
+        var key = file.getAbsolutePath();
+        var pages = PagedImage.getPageFiles(file);
+        var lastModified = pages.stream().mapToLong(File::lastModified).max().orElse(0);
+        var length = pages.stream().mapToLong(File::length).sum();
+
+        synchronized (this) {
+            var entry = this.entries.get(key);
+            if (entry != null) {
+                var image = entry.image.get();
+                if (image != null && entry.lastModified == lastModified && entry.length == length) {
+                    this.hits.incrementAndGet();
+                    return image;
+                }
+
+                remove(key);
+            }
+        }
+
+        this.misses.incrementAndGet();
+
+        long start = System.nanoTime();
+        var decoded = PagedImage.read(file);
+        if (decoded == null) return null;
+
+        var image = toARGB(decoded);
+        OCRMetrics.getInstance().record(OCRPhase.DECODE, System.nanoTime() - start);
+
+        var entry = new Entry(lastModified, length, image);
+        var budget = getBudget();
+        if (entry.bytes <= budget) {
+            synchronized (this) {
+                remove(key);
+                this.entries.put(key, entry);
+                this.usedBytes += entry.bytes;
+                evict(budget);
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Removes the given file from the cache.
+     *
+     * @param file The image file
+     */
+    public synchronized void invalidate(File file) {
+        remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Removes every image from the cache.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.usedBytes = 0;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the amount of bytes of pixel data held by the cache, including images that may have been reclaimed by the
+     * garbage collector but not yet evicted.
+     *
+     * @return The amount of bytes
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    private void remove(String key) {
+        var entry = this.entries.remove(key);
+        if (entry != null) this.usedBytes -= entry.bytes;
+    }
+
+    private void evict(long budget) {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (this.usedBytes <= budget && entry.image.get() != null) continue;
+
+            iterator.remove();
+            this.usedBytes -= entry.bytes;
+        }
+
+        LOGGER.debug("Raster cache is using {} bytes, {} hits and {} misses", this.usedBytes, this.hits.get(), this.misses.get());
+    }
+
+    private long getBudget() {
+        return SettingsManager.getInstance().<Integer>getSetting(Setting.RASTER_CACHE_SIZE) * 1024L * 1024L;
+    }
+
+    // Stitched pages are already ARGB, but ImageIO decodes to whichever type matches the file
+    private static BufferedImage toARGB(BufferedImage decoded) {
+        if (decoded.getType() == BufferedImage.TYPE_INT_ARGB) return decoded;
+
+        var width = decoded.getWidth();
+        var height = decoded.getHeight();
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        decoded.getRGB(0, 0, width, height, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, width);
+        return image;
+    }
+
+    private static class Entry {
+        private final long lastModified;
+        private final long length;
+        private final long bytes;
+        private final SoftReference<BufferedImage> image;
+
+        Entry(long lastModified, long length, BufferedImage image) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.bytes = (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+            this.image = new SoftReference<>(image);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.uddernetworks.mspaint.gui.window.diagnostic.DefaultDiagnosticManager;
 import com.uddernetworks.mspaint.gui.window.diagnostic.DiagnosticManager;
 import com.uddernetworks.mspaint.imagestreams.ImageOutputStream;
 import com.uddernetworks.mspaint.ocr.OCRManager;
+import com.uddernetworks.mspaint.ocr.OCRWarmup;
 import com.uddernetworks.mspaint.painthook.InjectionManager;
 import com.uddernetworks.mspaint.project.ProjectManager;
 import com.uddernetworks.mspaint.settings.Setting;
@@ -188,6 +189,17 @@ public class StartupLogic {
     }
 
     public void headlessStart() throws IOException {
+        headlessStart(true);
+    }
+
+    /**
+     * Loads the settings and OCR without any GUI.
+     *
+     * @param loadHeadlessFont If {@link Setting#HEADLESS_FONT} should be loaded and warmed up when headless, which
+     *                         callers choosing their own font should skip
+     * @throws IOException If the settings couldn't be loaded
+     */
+    public void headlessStart(boolean loadHeadlessFont) throws IOException {
         LOGGER.info("Loading settings");
         var optionsFile = new File(MainGUI.APP_DATA, "options.ini");
         var initializeSettings = !optionsFile.exists();
@@ -196,6 +208,7 @@ public class StartupLogic {
         this.centerPopulator = new CenterPopulator(this);
 
         this.ocrManager = new OCRManager(this);
+        var ocrWarmup = new OCRWarmup(this);
 
         if (initializeSettings) {
             settingsManager.setSetting(Setting.THEMES, Map.of(
@@ -209,8 +222,11 @@ public class StartupLogic {
         }
 
         if (MainGUI.HEADLESS) {
-            settingsManager.<String>onChangeSetting(Setting.HEADLESS_FONT, font ->
-                    this.ocrManager.setActiveFont(font, settingsManager.getSetting(Setting.HEADLESS_FONT_CONFIG)), true);
+            if (!loadHeadlessFont) return;
+            settingsManager.<String>onChangeSetting(Setting.HEADLESS_FONT, font -> {
+                this.ocrManager.setActiveFont(font, settingsManager.getSetting(Setting.HEADLESS_FONT_CONFIG));
+                ocrWarmup.warmup(this.ocrManager.getActiveFont());
+            }, true);
         } else {
             ProjectManager.switchProjectConsumer(project -> {
                 if (project.getActiveFont() == null) {
@@ -223,7 +239,11 @@ public class StartupLogic {
                     project.setActiveFont("Comic Sans MS");
                 }
 
-                project.onFontUpdate((name, path) -> this.ocrManager.setActiveFont(name, path), true);
+                this.ocrManager.preloadFonts(Map.copyOf(project.getFonts()));
+                project.onFontUpdate((name, path) -> {
+                    this.ocrManager.setActiveFont(name, path);
+                    ocrWarmup.warmup(this.ocrManager.getActiveFont());
+                }, true);
             });
         }
     }
@@ -0,0 +1,333 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.main.ImageUtil;
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.DefaultScannedImage;
+import com.uddernetworks.newocr.recognition.Scan;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Scans horizontal {@link LineBand}s of an image on their own, so only the parts of an image that have changed need
+ * to go through the OCR, and so tall images can be scanned in parallel.
+ */
+public class BandScanner {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(BandScanner.class);
+
+    // Changes this close to the edge of a band may belong to the neighbouring line, so it's rescanned too
+    private static final int BOUNDARY_MARGIN = 2;
+
+    // If more than this ratio of the image has changed, a full scan is just as fast and safer
+    private static final double MAX_CHANGED_RATIO = 0.5;
+
+    /**
+     * Rescans only the lines of an image that have changed since it was last scanned, and splices them into the
+     * previous {@link ScannedImage}.
+     *
+     * @param scan The {@link Scan} to use on the changed bands
+     * @param previous The {@link ScannedImage} of the previous version of the image
+     * @param previousImage The previous version of the image
+     * @param inputImage The file of the image
+     * @param image The current version of the image
+     * @return The spliced {@link ScannedImage}, which never shares letters with the previous one, or empty if the image
+     * must be fully rescanned
+     * @throws java.util.concurrent.CancellationException If the {@link ScanJob} running the rescan was cancelled
+     */
+    public static Optional<ScannedImage> rescanChanged(Scan scan, ScannedImage previous, BufferedImage previousImage, File inputImage, BufferedImage image) {
+        if (previous == null || previousImage == null || image == null || previous.getLineCount() == 0) return Optional.empty();
+
+        var changedRows = getChangedRows(previousImage, image);
+        if (changedRows == null) return Optional.empty();
+
+        var bands = getLineBands(previous, image.getHeight());
+        var changedBands = getChangedBands(bands, changedRows);
+
+        var changedHeight = changedBands.stream().mapToInt(LineBand::getHeight).sum();
+        if (changedHeight > image.getHeight() * MAX_CHANGED_RATIO) return Optional.empty();
+
+        var job = ScanJob.getCurrent();
+        var rescanned = new ArrayList<Map.Entry<Integer, List<ImageLetter>>>();
+        for (var changed : changedBands) {
+            job.ifPresent(ScanJob::throwIfCancelled);
+            LOGGER.info("Rescanning rows {} to {} of {}", changed.getTop(), changed.getBottom(), inputImage.getName());
+            rescanned.addAll(scanBand(scan, image, changed));
+        }
+
+        return Optional.of(OCRMetrics.getInstance().time(OCRPhase.LINE_ASSEMBLY, () -> {
+            var lines = new TreeMap<Integer, List<ImageLetter>>();
+            for (int i = 0; i < previous.getLineCount(); i++) {
+                var band = bands.get(i);
+                if (changedBands.stream().anyMatch(changed -> changed.contains(band.getTop()))) continue;
+
+                // Unchanged lines are copied, as highlighters modify the letters of the previous scan through setData
+                var lineEntry = previous.getLineEntry(i);
+                lines.put(lineEntry.getKey(), lineEntry.getValue().stream().map(ImageLetterFields::copy).collect(Collectors.toList()));
+            }
+
+            rescanned.forEach(entry -> lines.put(entry.getKey(), entry.getValue()));
+            return createScannedImage(inputImage, image, lines);
+        }));
+    }
+
+    /**
+     * Creates a {@link LineBand} for every line in the {@link ScannedImage}, with the boundaries being halfway between
+     * the bottom of a line and the top of the next. The bands cover the entire height of the image.
+     *
+     * @param scannedImage The {@link ScannedImage}
+     * @param imageHeight The height of the image
+     * @return A {@link LineBand} for each line, in order
+     */
+    public static List<LineBand> getLineBands(ScannedImage scannedImage, int imageHeight) {
+        var lineCount = scannedImage.getLineCount();
+        var tops = new int[lineCount];
+        var bottoms = new int[lineCount];
+
+        for (int i = 0; i < lineCount; i++) {
+            var lineEntry = scannedImage.getLineEntry(i);
+            int top = Integer.MAX_VALUE;
+            int bottom = Integer.MIN_VALUE;
+            for (var imageLetter : lineEntry.getValue()) {
+                if (imageLetter.getLetter() == ' ') continue;
+                top = Math.min(top, imageLetter.getY());
+                bottom = Math.max(bottom, imageLetter.getY() + imageLetter.getHeight());
+            }
+
+            if (top == Integer.MAX_VALUE) top = bottom = lineEntry.getKey();
+            tops[i] = top;
+            bottoms[i] = bottom;
+        }
+
+        var bands = new ArrayList<LineBand>(lineCount);
+        int bandTop = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int bandBottom = i == lineCount - 1 ? imageHeight : (bottoms[i] + tops[i + 1]) / 2;
+            bandBottom = Math.min(imageHeight, Math.max(bandTop + 1, bandBottom));
+            bands.add(new LineBand(bandTop, bandBottom));
+            bandTop = bandBottom;
+        }
+
+        return bands;
+    }
+
+    /**
+     * Splits an image into {@link LineBand}s at the horizontal whitespace gaps between lines of text, without knowing
+     * anything about its text. Gaps much shorter than the lines around them, such as the gap inside an '=', are not
+     * split on.
+     *
+     * @param image The image
+     * @return The bands covering the entire height of the image, in order
+     */
+    public static List<LineBand> getWhitespaceBands(BufferedImage image) {
+        long start = System.nanoTime();
+        try {
+            return findWhitespaceBands(image);
+        } finally {
+            OCRMetrics.getInstance().record(OCRPhase.LINE_SPLIT, System.nanoTime() - start);
+        }
+    }
+
+    private static List<LineBand> findWhitespaceBands(BufferedImage image) {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var row = new int[width];
+
+        // Runs of rows containing ink, as [start, end) pairs
+        var runs = new ArrayList<int[]>();
+        int runStart = -1;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            var hasInk = false;
+            for (int x = 0; x < width && !hasInk; x++) {
+                var rgb = row[x];
+                hasInk = ((rgb >>> 24) != 0) && ImageUtil.shouldBeBlack((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            }
+
+            if (hasInk && runStart == -1) {
+                runStart = y;
+            } else if (!hasInk && runStart != -1) {
+                runs.add(new int[]{runStart, y});
+                runStart = -1;
+            }
+        }
+
+        if (runStart != -1) runs.add(new int[]{runStart, height});
+        if (runs.size() <= 1) return List.of(new LineBand(0, height));
+
+        var runHeights = runs.stream().mapToInt(run -> run[1] - run[0]).sorted().toArray();
+        var minGap = Math.max(2, runHeights[runHeights.length / 2] / 3);
+
+        var merged = new ArrayList<int[]>();
+        var current = runs.get(0);
+        for (int i = 1; i < runs.size(); i++) {
+            var next = runs.get(i);
+            if (next[0] - current[1] < minGap) {
+                current = new int[]{current[0], next[1]};
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+
+        merged.add(current);
+
+        var bands = new ArrayList<LineBand>(merged.size());
+        int bandTop = 0;
+        for (int i = 0; i < merged.size(); i++) {
+            int bandBottom = i == merged.size() - 1 ? height : (merged.get(i)[1] + merged.get(i + 1)[0]) / 2;
+            bands.add(new LineBand(bandTop, bandBottom));
+            bandTop = bandBottom;
+        }
+
+        return bands;
+    }
+
+    /**
+     * Merges neighbouring bands so there are at most the given amount, keeping them about equally tall.
+     *
+     * @param bands The bands, in order
+     * @param amount The maximum amount of bands
+     * @return The merged bands, in order
+     */
+    public static List<LineBand> groupBands(List<LineBand> bands, int amount) {
+        if (bands.size() <= amount) return bands;
+
+        var totalHeight = bands.get(bands.size() - 1).getBottom() - bands.get(0).getTop();
+        var targetHeight = Math.ceil(totalHeight / (double) amount);
+
+        var grouped = new ArrayList<LineBand>(amount);
+        LineBand current = null;
+        for (var band : bands) {
+            current = current == null ? band : current.merge(band);
+            if (current.getHeight() >= targetHeight) {
+                grouped.add(current);
+                current = null;
+            }
+        }
+
+        if (current != null) grouped.add(current);
+        return grouped;
+    }
+
+    /**
+     * Gets which rows differ between two versions of an image.
+     *
+     * @param previous The previous image
+     * @param current The current image
+     * @return An array with an element per row, or null if the images are different sizes
+     */
+    public static boolean[] getChangedRows(BufferedImage previous, BufferedImage current) {
+        if (previous.getWidth() != current.getWidth() || previous.getHeight() != current.getHeight()) return null;
+
+        var width = current.getWidth();
+        var previousRow = new int[width];
+        var currentRow = new int[width];
+        var changed = new boolean[current.getHeight()];
+
+        for (int y = 0; y < changed.length; y++) {
+            previous.getRGB(0, y, width, 1, previousRow, 0, width);
+            current.getRGB(0, y, width, 1, currentRow, 0, width);
+            changed[y] = !Arrays.equals(previousRow, currentRow);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Gets the bands containing changed rows, with neighbouring changed bands merged together.
+     *
+     * @param bands The bands of the image, in order
+     * @param changedRows The rows that have changed
+     * @return The merged changed bands, in order
+     */
+    public static List<LineBand> getChangedBands(List<LineBand> bands, boolean[] changedRows) {
+        var changed = new boolean[bands.size()];
+
+        for (int i = 0; i < bands.size(); i++) {
+            var band = bands.get(i);
+            for (int y = band.getTop(); y < band.getBottom(); y++) {
+                if (!changedRows[y]) continue;
+
+                changed[i] = true;
+                if (i > 0 && y < band.getTop() + BOUNDARY_MARGIN) changed[i - 1] = true;
+                if (i < bands.size() - 1 && y >= band.getBottom() - BOUNDARY_MARGIN) changed[i + 1] = true;
+            }
+        }
+
+        var merged = new ArrayList<LineBand>();
+        LineBand current = null;
+        for (int i = 0; i < bands.size(); i++) {
+            if (!changed[i]) {
+                if (current != null) merged.add(current);
+                current = null;
+                continue;
+            }
+
+            current = current == null ? bands.get(i) : current.merge(bands.get(i));
+        }
+
+        if (current != null) merged.add(current);
+        return merged;
+    }
+
+    /**
+     * Scans a single {@link LineBand} of an image, returning its lines in the coordinates of the full image. The band
+     * is handed to the {@link Scan} directly from memory, so it is never encoded or decoded.
+     *
+     * @param scan The {@link Scan} to use
+     * @param image The full image, which is left unmodified
+     * @param band The band to scan
+     * @return The lines found in the band, keyed by their offset grid key
+     */
+    public static List<Map.Entry<Integer, List<ImageLetter>>> scanBand(Scan scan, BufferedImage image, LineBand band) {
+        var bandImage = copyBand(image, band);
+        var scanned = OCRMetrics.getInstance().time(OCRPhase.RECOGNITION, () -> scan.scanImage(bandImage));
+
+        var lines = new ArrayList<Map.Entry<Integer, List<ImageLetter>>>(scanned.getLineCount());
+        for (int i = 0; i < scanned.getLineCount(); i++) {
+            var lineEntry = scanned.getLineEntry(i);
+            var line = lineEntry.getValue();
+            line.forEach(imageLetter -> imageLetter.setY(imageLetter.getY() + band.getTop()));
+            lines.add(new AbstractMap.SimpleEntry<>(lineEntry.getKey() + band.getTop(), line));
+        }
+
+        return lines;
+    }
+
+    // The recognizer may filter the image it's given in place, so it gets its own copy of the band instead of the
+    // image from the RasterCache, which is shared
+    private static BufferedImage copyBand(BufferedImage image, LineBand band) {
+        var width = image.getWidth();
+        var copy = new BufferedImage(width, band.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.getRGB(0, band.getTop(), width, band.getHeight(), ((DataBufferInt) copy.getRaster().getDataBuffer()).getData(), 0, width);
+        return copy;
+    }
+
+    /**
+     * Creates a {@link ScannedImage} from lines keyed by their grid key, added in order.
+     *
+     * @param inputImage The file of the image
+     * @param image The image
+     * @param lines The lines
+     * @return The created {@link ScannedImage}
+     */
+    public static ScannedImage createScannedImage(File inputImage, BufferedImage image, TreeMap<Integer, List<ImageLetter>> lines) {
+        var scannedImage = new DefaultScannedImage(inputImage, image, null);
+        lines.forEach(scannedImage::addLine);
+        return scannedImage;
+    }
+}
@@ -0,0 +1,100 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An immutable copy of every trained {@link DatabaseCharacter} of a font, indexed by their character so lookups don't
+ * require going to the database.
+ */
+public class CharacterSnapshot {
+
+    // A rough size of a DatabaseCharacter with its segment data, and of a list slot referencing it
+    private static final int ESTIMATED_CHARACTER_BYTES = 320;
+    private static final int REFERENCE_BYTES = 8;
+
+    private final long trainVersion;
+    private final List<DatabaseCharacter>[] characters;
+    private final SpaceMetrics space;
+    private final int size;
+
+    private CharacterSnapshot(long trainVersion, List<DatabaseCharacter>[] characters, SpaceMetrics space, int size) {
+        this.trainVersion = trainVersion;
+        this.characters = characters;
+        this.space = space;
+        this.size = size;
+    }
+
+    /**
+     * Creates a {@link CharacterSnapshot} from the contents of the database.
+     *
+     * @param data Every {@link DatabaseCharacter} in the database
+     * @param trainVersion The training version of the font the data is from
+     * @return The created {@link CharacterSnapshot}
+     */
+    @SuppressWarnings("unchecked")
+    public static CharacterSnapshot create(List<DatabaseCharacter> data, long trainVersion) {
+        var maxCharacter = data.stream().mapToInt(DatabaseCharacter::getLetter).max().orElse(-1);
+        var characters = (List<DatabaseCharacter>[]) new List[maxCharacter + 1];
+
+        SpaceMetrics space = null;
+        for (var databaseCharacter : data) {
+            var letter = databaseCharacter.getLetter();
+            if (characters[letter] == null) characters[letter] = new ArrayList<>();
+            characters[letter].add(databaseCharacter);
+
+            if (letter == ' ' && space == null) space = SpaceMetrics.of(databaseCharacter);
+        }
+
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = characters[i] == null ? Collections.emptyList() : Collections.unmodifiableList(characters[i]);
+        }
+
+        return new CharacterSnapshot(trainVersion, characters, space, data.size());
+    }
+
+    /**
+     * Gets every trained {@link DatabaseCharacter} of the given character.
+     *
+     * @param letter The character
+     * @return The {@link DatabaseCharacter}s, or an empty list if it isn't trained
+     */
+    public List<DatabaseCharacter> getCharacters(char letter) {
+        return letter < this.characters.length ? this.characters[letter] : Collections.emptyList();
+    }
+
+    /**
+     * Gets the {@link SpaceMetrics} of the font.
+     *
+     * @return The {@link SpaceMetrics}, if the space has been trained
+     */
+    public Optional<SpaceMetrics> getSpace() {
+        return Optional.ofNullable(this.space);
+    }
+
+    public long getTrainVersion() {
+        return trainVersion;
+    }
+
+    /**
+     * Gets the total amount of {@link DatabaseCharacter}s in the snapshot.
+     *
+     * @return The amount of characters
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the amount of heap the snapshot and its characters take up.
+     *
+     * @return The estimated amount of bytes
+     */
+    public long getEstimatedBytes() {
+        return (long) this.size * (ESTIMATED_CHARACTER_BYTES + REFERENCE_BYTES) + (long) this.characters.length * REFERENCE_BYTES;
+    }
+}
@@ -1,5 +1,6 @@
 package com.uddernetworks.mspaint.ocr;
 
+import com.uddernetworks.mspaint.main.MainGUI;
 import com.uddernetworks.mspaint.settings.Setting;
 import com.uddernetworks.mspaint.settings.SettingsManager;
 import com.uddernetworks.newocr.configuration.FontConfiguration;
@@ -15,12 +16,20 @@ import com.uddernetworks.newocr.train.ComputerTrainGenerator;
 import com.uddernetworks.newocr.train.ImageReadMethod;
 import com.uddernetworks.newocr.train.TrainGenerator;
 import com.uddernetworks.newocr.train.TrainGeneratorOptions;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class FontData {
 
@@ -29,9 +38,14 @@ public class FontData {
     private OCRManager ocrManager;
     private String fontName;
     private String configPath;
+    private String configHash;
     private FontConfiguration configuration;
 
-    private Scan scan;
+    // Scanners keep per-scan state, so each thread scanning with this font gets its own. They're kept here rather than
+    // in a ThreadLocal, so they can be dropped once the font is switched away from or closed, and the threads of the
+    // scan executor never keep an unused font reachable
+    private final Map<Thread, Scan> scans = new ConcurrentHashMap<>();
+    private Supplier<Scan> scanFactory;
     private Train train;
     private Actions actions;
 
@@ -41,6 +55,10 @@ public class FontData {
     private MergenceManager mergenceManager;
 
     private boolean usingInternal;
+    private long trainVersion;
+    private volatile CharacterSnapshot characterSnapshot;
+    private volatile boolean closed;
+    private Consumer<Boolean> useInternalListener;
 
     public FontData(OCRManager ocrManager, String fontName, String configPath) {
         this.ocrManager = ocrManager;
@@ -50,13 +68,15 @@ public class FontData {
 
     public void initialize() {
         var settingsManager = SettingsManager.getInstance();
-        settingsManager.<Boolean>onChangeSetting(Setting.DATABASE_USE_INTERNAL, useInternal -> {
-            if (!this.equals(this.ocrManager.getActiveFont())) return;
+        this.useInternalListener = useInternal -> {
+            if (this.closed) return;
             try {
                 if (useInternal == this.usingInternal) return;
                 this.usingInternal = useInternal;
 
                 if (this.databaseManager != null) this.databaseManager.shutdown(TimeUnit.SECONDS, 1);
+                this.characterSnapshot = null;
+                this.scans.clear();
 
                 if (useInternal) {
                     String location = settingsManager.getSetting(Setting.DATABASE_INTERNAL_LOCATION);
@@ -67,7 +87,7 @@ public class FontData {
                         return;
                     }
 
-                    this.databaseManager = new OCRDatabaseManager(new File(file, "ocr_db_" + this.fontName.replaceAll("[^a-zA-Z\\d\\s:]", "_")));
+                    this.databaseManager = new OCRDatabaseManager(new File(file, "ocr_db_" + getSafeFontName()));
                 } else {
                     String url = settingsManager.getSetting(Setting.DATABASE_URL);
                     String user = settingsManager.getSetting(Setting.DATABASE_USER);
@@ -83,11 +103,15 @@ public class FontData {
             } catch (IOException e) {
                 e.printStackTrace();
             }
-        }, true);
+        };
+        settingsManager.onChangeSetting(Setting.DATABASE_USE_INTERNAL, this.useInternalListener, true);
+
+        this.trainVersion = readTrainVersion();
 
         this.similarityManager = new DefaultSimilarityManager();
         this.mergenceManager = new DefaultMergenceManager(this.databaseManager, similarityManager);
 
+        this.configHash = hashConfig();
         this.configuration = new HOCONFontConfiguration(this.configPath, this.ocrManager.getReflectionCacher(), this.similarityManager);
         this.configuration.fetchAndApplySimilarities();
 
@@ -102,8 +126,8 @@ public class FontData {
                 .setMaxFontSize(settingsManager.getSetting(Setting.TRAIN_UPPER_BOUND));
 
         this.actions = new OCRActions(this.databaseManager, options);
-        this.scan = new OCRScan(databaseManager, similarityManager, mergenceManager, this.actions);
         this.train = new OCRTrain(this.databaseManager, options, this.actions, generatorOptions);
+        this.scanFactory = () -> new OCRScan(this.databaseManager, this.similarityManager, this.mergenceManager, new OCRActions(this.databaseManager, options));
 
         this.trainGenerator = new ComputerTrainGenerator(generatorOptions);
     }
@@ -114,6 +138,142 @@ public class FontData {
         }
     }
 
+    /**
+     * Gets the {@link CharacterSnapshot} of the font, loading it from the database if it hasn't been yet.
+     *
+     * @return The {@link CharacterSnapshot}
+     * @throws ExecutionException If the characters couldn't be fetched
+     * @throws InterruptedException If interrupted while fetching the characters
+     */
+    public CharacterSnapshot getCharacterSnapshot() throws ExecutionException, InterruptedException {
+        var snapshot = this.characterSnapshot;
+        if (snapshot != null) return snapshot;
+
+        synchronized (this) {
+            if (this.characterSnapshot == null) refreshCharacterSnapshot();
+            return this.characterSnapshot;
+        }
+    }
+
+    /**
+     * Reloads the {@link CharacterSnapshot} from the database. This should be invoked any time the font is trained.
+     *
+     * @throws ExecutionException If the characters couldn't be fetched
+     * @throws InterruptedException If interrupted while fetching the characters
+     */
+    public synchronized void refreshCharacterSnapshot() throws ExecutionException, InterruptedException {
+        long start = System.currentTimeMillis();
+        this.characterSnapshot = CharacterSnapshot.create(this.databaseManager.getAllCharacterSegments().get(), this.trainVersion);
+        LOGGER.info("Loaded {} characters of {} in {}ms", this.characterSnapshot.size(), this.fontName, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Gets the {@link SpaceMetrics} of the font, loading the {@link CharacterSnapshot} if it hasn't been yet.
+     *
+     * @return The {@link SpaceMetrics}, if the space has been trained
+     * @throws ExecutionException If the characters couldn't be fetched
+     * @throws InterruptedException If interrupted while fetching the characters
+     */
+    public Optional<SpaceMetrics> getSpaceMetrics() throws ExecutionException, InterruptedException {
+        return getCharacterSnapshot().getSpace();
+    }
+
+    // Hashes the contents of the config as it's loaded, falling back to its path if it can't be read
+    private String hashConfig() {
+        try {
+            return DigestUtils.sha256Hex(readConfig());
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read the config of " + this.fontName + ", scans will be cached by its path", e);
+            return this.configPath;
+        }
+    }
+
+    /**
+     * Reads the raw contents of the font's config, from the file at its path if there is one, otherwise from the
+     * classpath, where the bundled configs are. The <code>.conf</code> extension may be left out of the path.
+     *
+     * @return The bytes of the config
+     * @throws IOException If the config couldn't be found or read
+     */
+    public byte[] readConfig() throws IOException {
+        for (var path : new String[]{this.configPath, this.configPath + ".conf"}) {
+            var file = new File(path);
+            if (file.isFile()) return Files.readAllBytes(file.toPath());
+
+            try (var stream = FontData.class.getClassLoader().getResourceAsStream(path)) {
+                if (stream != null) return stream.readAllBytes();
+            }
+        }
+
+        throw new IOException("Unable to find the config " + this.configPath);
+    }
+
+    /**
+     * Marks the font as freshly trained, invalidating anything cached from the previous training data, such as
+     * entries in the {@link ScanCache}.
+     */
+    public void markTrained() {
+        this.trainVersion = System.currentTimeMillis();
+
+        var versionFile = getTrainVersionFile();
+        try {
+            versionFile.getParentFile().mkdirs();
+            Files.writeString(versionFile.toPath(), String.valueOf(this.trainVersion));
+        } catch (IOException e) {
+            LOGGER.error("Unable to save the training version of " + this.fontName, e);
+        }
+    }
+
+    private long readTrainVersion() {
+        var versionFile = getTrainVersionFile();
+        if (!versionFile.isFile()) return 0;
+
+        try {
+            return Long.parseLong(Files.readString(versionFile.toPath()).trim());
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error("Unable to read the training version of " + this.fontName, e);
+            return 0;
+        }
+    }
+
+    private File getTrainVersionFile() {
+        return new File(MainGUI.APP_DATA, "ocr" + File.separator + "train_" + getSafeFontName() + ".version");
+    }
+
+    /**
+     * Estimates the amount of heap used by the trained data of the font that has been loaded so far.
+     *
+     * @return The estimated amount of bytes
+     */
+    public long getMemoryFootprint() {
+        var snapshot = this.characterSnapshot;
+        return snapshot == null ? 0 : snapshot.getEstimatedBytes();
+    }
+
+    /**
+     * Releases the database of the font once it has been removed from the {@link OCRManager}. The font will no longer
+     * react to database setting changes.
+     */
+    public void close() {
+        this.closed = true;
+        if (this.useInternalListener != null) SettingsManager.getInstance().removeOnChangeSetting(Setting.DATABASE_USE_INTERNAL, this.useInternalListener);
+        this.characterSnapshot = null;
+        this.scans.clear();
+        if (this.databaseManager != null) this.databaseManager.shutdown(TimeUnit.SECONDS, 1);
+    }
+
+    public String getSafeFontName() {
+        return this.fontName.replaceAll("[^a-zA-Z\\d\\s:]", "_");
+    }
+
+    public long getTrainVersion() {
+        return trainVersion;
+    }
+
+    public boolean isUsingInternal() {
+        return usingInternal;
+    }
+
     public String getFontName() {
         return fontName;
     }
@@ -122,12 +282,41 @@ public class FontData {
         return configPath;
     }
 
+    /**
+     * Gets the SHA-256 hash of the font's config as it was when the font was loaded, so anything cached from its
+     * options is invalidated once the config is edited.
+     *
+     * @return The hex hash, or the config's path if it couldn't be read
+     */
+    public String getConfigHash() {
+        return configHash;
+    }
+
     public FontConfiguration getConfiguration() {
         return configuration;
     }
 
+    /**
+     * Gets the {@link Scan} for the current thread, creating it if the thread hasn't scanned with this font yet.
+     *
+     * @return The {@link Scan}
+     */
     public Scan getScan() {
-        return scan;
+        var thread = Thread.currentThread();
+        var scan = this.scans.get(thread);
+        if (scan != null) return scan;
+
+        // Threads that have since finished are only removed when a new thread starts scanning, which is rare
+        this.scans.keySet().removeIf(scanning -> !scanning.isAlive());
+        return this.scans.computeIfAbsent(thread, x -> this.scanFactory.get());
+    }
+
+    /**
+     * Drops the {@link Scan} of every thread, such as once this font is no longer active. Threads scanning with the
+     * font afterwards create new ones.
+     */
+    public void clearScans() {
+        this.scans.clear();
     }
 
     public Train getTrain() {
@@ -150,6 +339,17 @@ public class FontData {
         return mergenceManager;
     }
 
+    /**
+     * Gets the {@link TrainingPipeline} used to generate training images and train this font.
+     *
+     * @return The {@link TrainingPipeline}
+     */
+    public TrainingPipeline getTrainingPipeline() {
+        var ocrDirectory = new File(MainGUI.APP_DATA, "ocr");
+        var manifest = TrainingManifest.load(new File(ocrDirectory, "train_" + getSafeFontName() + ".manifest.json"), this.fontName);
+        return new TrainingPipeline(this, this.ocrManager.getScanExecutor(), manifest, new File(ocrDirectory, "train_sizes" + File.separator + getSafeFontName()));
+    }
+
     public TrainGenerator getTrainGenerator() {
         return trainGenerator;
     }
@@ -0,0 +1,134 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.Actions;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+
+import java.util.Arrays;
+
+/**
+ * The font sizes of a {@link ScannedImage}, computed once per scan and font via
+ * {@link OCRManager#getFontMetrics(ScannedImage)}. Sizes are the mean of the letter sizes between the 20th and 80th
+ * percentiles, so stray punctuation and merged characters don't skew them.
+ */
+public class FontMetrics {
+
+    private static final double LOWER_PERCENTILE = 20;
+    private static final double UPPER_PERCENTILE = 80;
+
+    private final double fontSize;
+    private final double[] lineSizes;
+
+    private FontMetrics(double fontSize, double[] lineSizes) {
+        this.fontSize = fontSize;
+        this.lineSizes = lineSizes;
+    }
+
+    /**
+     * Computes the {@link FontMetrics} of the given {@link ScannedImage}.
+     *
+     * @param scannedImage The {@link ScannedImage}
+     * @param actions The {@link Actions} of the font the image was scanned with
+     * @return The computed {@link FontMetrics}
+     */
+    public static FontMetrics compute(ScannedImage scannedImage, Actions actions) {
+        var lineCount = scannedImage.getLineCount();
+        var lineSizes = new double[lineCount];
+
+        var letterCount = 0;
+        for (int i = 0; i < lineCount; i++) letterCount += scannedImage.getLine(i).size();
+
+        // Every size is written once into a single primitive buffer, with each line sorted in its own range
+        var sizes = new double[letterCount];
+        var total = 0;
+        for (int i = 0; i < lineCount; i++) {
+            var lineStart = total;
+            for (ImageLetter imageLetter : scannedImage.getLine(i)) {
+                if (imageLetter.getLetter() == ' ') continue;
+                var size = actions.getFontSize(imageLetter);
+                if (size.isPresent()) sizes[total++] = size.getAsDouble();
+            }
+
+            lineSizes[i] = trimmedMean(sizes, lineStart, total, LOWER_PERCENTILE, UPPER_PERCENTILE);
+        }
+
+        return new FontMetrics(trimmedMean(sizes, 0, total, LOWER_PERCENTILE, UPPER_PERCENTILE), lineSizes);
+    }
+
+    /**
+     * Gets the mean of the values within the given percentiles. The range of the array is sorted in place.
+     *
+     * @param values The values
+     * @param from The first index of the values to use, inclusive
+     * @param to The last index of the values to use, exclusive
+     * @param lowerPercentile The lower percentile, from 0 to 100
+     * @param upperPercentile The upper percentile, from 0 to 100
+     * @return The mean, or 0 if there are no values
+     */
+    public static double trimmedMean(double[] values, int from, int to, double lowerPercentile, double upperPercentile) {
+        if (to <= from) return 0;
+
+        Arrays.sort(values, from, to);
+        var lowerBound = percentile(values, from, to, lowerPercentile);
+        var upperBound = percentile(values, from, to, upperPercentile);
+
+        var sum = 0D;
+        var count = 0;
+        for (int i = from; i < to; i++) {
+            var value = values[i];
+            if (value < lowerBound || value > upperBound) continue;
+            sum += value;
+            count++;
+        }
+
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Gets the mean of the values within the given percentiles.
+     *
+     * @param values The values, which will be sorted in place
+     * @param lowerPercentile The lower percentile, from 0 to 100
+     * @param upperPercentile The upper percentile, from 0 to 100
+     * @return The mean, or 0 if there are no values
+     */
+    public static double trimmedMean(double[] values, double lowerPercentile, double upperPercentile) {
+        return trimmedMean(values, 0, values.length, lowerPercentile, upperPercentile);
+    }
+
+    // Interpolates the same way as the default estimation of commons-math's Percentile, on an already sorted range
+    private static double percentile(double[] sorted, int from, int to, double percentile) {
+        var length = to - from;
+        if (length == 1) return sorted[from];
+
+        var position = percentile * (length + 1) / 100D;
+        if (position < 1) return sorted[from];
+        if (position >= length) return sorted[to - 1];
+
+        var floor = (int) Math.floor(position);
+        var lower = sorted[from + floor - 1];
+        var upper = sorted[from + floor];
+        return lower + (position - floor) * (upper - lower);
+    }
+
+    /**
+     * Gets the font size of the whole image.
+     *
+     * @return The font size, or 0 if the image has no letters
+     */
+    public double getFontSize() {
+        return fontSize;
+    }
+
+    /**
+     * Gets the font size of a single line, falling back to the font size of the whole image if the line has no
+     * letters.
+     *
+     * @param line The index of the line
+     * @return The font size
+     */
+    public double getLineSize(int line) {
+        if (line < 0 || line >= this.lineSizes.length || this.lineSizes[line] == 0) return this.fontSize;
+        return this.lineSizes[line];
+    }
+}
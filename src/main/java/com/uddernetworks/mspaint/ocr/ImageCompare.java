@@ -7,21 +7,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.function.Function;
 
 public class ImageCompare {
 
     private static Logger LOGGER = LoggerFactory.getLogger(ImageCompare.class);
 
     public ScannedImage getText(File inputImage, MainGUI mainGUI, StartupLogic startupLogic) {
+        return getText(inputImage, mainGUI, startupLogic, startupLogic.getOCRManager()::scanImage);
+    }
+
+    public ScannedImage getText(File inputImage, MainGUI mainGUI, StartupLogic startupLogic, Function<File, ScannedImage> scanner) {
         try {
-            if (!MainGUI.HEADLESS) {
+            if (!MainGUI.HEADLESS && !ScanExecutor.isWorkerThread()) {
                 mainGUI.setStatusText("Scanning image " + inputImage.getName() + "...");
                 mainGUI.setIndeterminate(true);
             }
 
-            return startupLogic.getOCRManager().getActiveFont().getScan().scanImage(inputImage);
+            var activeFont = startupLogic.getOCRManager().getActiveFont();
+            return startupLogic.getOCRManager().getScanCache().getOrScan(activeFont, inputImage, scanner);
         } finally {
-            if (!MainGUI.HEADLESS) {
+            if (!MainGUI.HEADLESS && !ScanExecutor.isWorkerThread()) {
                 mainGUI.setStatusText("");
                 mainGUI.setIndeterminate(false);
             }
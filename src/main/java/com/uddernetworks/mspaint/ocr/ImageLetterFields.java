@@ -0,0 +1,178 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads, writes and copies every field of an {@link ImageLetter}, so letters restored from the {@link ScanCache} or
+ * reused between scans are identical to freshly scanned ones. The fields are found once by reflection rather than
+ * listed by hand, so fields recognition sets, such as the modifier, ratio and centers, can't be missed. Primitive,
+ * string and <code>double[]</code> fields are written, while a letter's values are packed by the caller, and
+ * references to other objects, such as attached data, are only copied.
+ */
+public class ImageLetterFields {
+
+    private static final List<Field> FIELDS = findFields();
+    private static final List<Field> WRITTEN = FIELDS.stream().filter(field -> isWritable(field.getType())).collect(Collectors.toList());
+
+    private ImageLetterFields() {}
+
+    /**
+     * Gets a description of every written field, which changes whenever {@link ImageLetter} gains, loses or changes
+     * the type of a field, meaning previously written letters can no longer be read.
+     *
+     * @return The names and types of the written fields
+     */
+    public static String getSignature() {
+        return WRITTEN.stream().map(field -> field.getType().getName() + " " + field.getName()).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Writes every primitive, string and <code>double[]</code> field of the letter.
+     *
+     * @param out The stream to write to
+     * @param imageLetter The {@link ImageLetter}
+     * @throws IOException If the letter couldn't be written
+     */
+    public static void write(DataOutputStream out, ImageLetter imageLetter) throws IOException {
+        try {
+            for (var field : WRITTEN) writeField(out, field, imageLetter);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Unable to read the fields of an ImageLetter", e);
+        }
+    }
+
+    /**
+     * Reads a letter written by {@link #write(DataOutputStream, ImageLetter)}.
+     *
+     * @param in The stream to read from
+     * @return The {@link ImageLetter}, without any values
+     * @throws IOException If the letter couldn't be read
+     */
+    public static ImageLetter read(DataInputStream in) throws IOException {
+        var imageLetter = new ImageLetter(' ', 0, 0, 0, 0, 0, 0D, 0D, 0D);
+
+        try {
+            for (var field : WRITTEN) readField(in, field, imageLetter);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Unable to set the fields of an ImageLetter", e);
+        }
+
+        return imageLetter;
+    }
+
+    /**
+     * Copies a letter, so the copy may be moved or have its data replaced without affecting the original. Its values
+     * are copied too, while any other referenced objects are shared.
+     *
+     * @param imageLetter The {@link ImageLetter} to copy
+     * @return The copy
+     */
+    public static ImageLetter copy(ImageLetter imageLetter) {
+        var copy = new ImageLetter(' ', 0, 0, 0, 0, 0, 0D, 0D, 0D);
+
+        try {
+            for (var field : FIELDS) field.set(copy, field.get(imageLetter));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to copy an ImageLetter", e);
+        }
+
+        var values = imageLetter.getValues();
+        if (values != null) {
+            var copiedValues = new boolean[values.length][];
+            for (int i = 0; i < values.length; i++) copiedValues[i] = values[i].clone();
+            copy.setValues(copiedValues);
+        }
+
+        return copy;
+    }
+
+    private static List<Field> findFields() {
+        var fields = new ArrayList<Field>();
+        for (Class<?> type = ImageLetter.class; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (var field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        return Collections.unmodifiableList(fields);
+    }
+
+    private static boolean isWritable(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type == double[].class;
+    }
+
+    private static void writeField(DataOutputStream out, Field field, ImageLetter imageLetter) throws IOException, IllegalAccessException {
+        var type = field.getType();
+        if (type == int.class) {
+            out.writeInt(field.getInt(imageLetter));
+        } else if (type == double.class) {
+            out.writeDouble(field.getDouble(imageLetter));
+        } else if (type == char.class) {
+            out.writeChar(field.getChar(imageLetter));
+        } else if (type == boolean.class) {
+            out.writeBoolean(field.getBoolean(imageLetter));
+        } else if (type == long.class) {
+            out.writeLong(field.getLong(imageLetter));
+        } else if (type == float.class) {
+            out.writeFloat(field.getFloat(imageLetter));
+        } else if (type == short.class) {
+            out.writeShort(field.getShort(imageLetter));
+        } else if (type == byte.class) {
+            out.writeByte(field.getByte(imageLetter));
+        } else if (type == String.class) {
+            var string = (String) field.get(imageLetter);
+            out.writeBoolean(string != null);
+            if (string != null) out.writeUTF(string);
+        } else {
+            var array = (double[]) field.get(imageLetter);
+            out.writeInt(array == null ? -1 : array.length);
+            if (array != null) for (var value : array) out.writeDouble(value);
+        }
+    }
+
+    private static void readField(DataInputStream in, Field field, ImageLetter imageLetter) throws IOException, IllegalAccessException {
+        var type = field.getType();
+        if (type == int.class) {
+            field.setInt(imageLetter, in.readInt());
+        } else if (type == double.class) {
+            field.setDouble(imageLetter, in.readDouble());
+        } else if (type == char.class) {
+            field.setChar(imageLetter, in.readChar());
+        } else if (type == boolean.class) {
+            field.setBoolean(imageLetter, in.readBoolean());
+        } else if (type == long.class) {
+            field.setLong(imageLetter, in.readLong());
+        } else if (type == float.class) {
+            field.setFloat(imageLetter, in.readFloat());
+        } else if (type == short.class) {
+            field.setShort(imageLetter, in.readShort());
+        } else if (type == byte.class) {
+            field.setByte(imageLetter, in.readByte());
+        } else if (type == String.class) {
+            field.set(imageLetter, in.readBoolean() ? in.readUTF() : null);
+        } else {
+            var length = in.readInt();
+            if (length < -1) throw new IOException("Invalid array length " + length);
+
+            double[] array = null;
+            if (length != -1) {
+                array = new double[length];
+                for (int i = 0; i < length; i++) array[i] = in.readDouble();
+            }
+
+            field.set(imageLetter, array);
+        }
+    }
+}
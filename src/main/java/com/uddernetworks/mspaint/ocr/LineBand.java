@@ -0,0 +1,46 @@
+package com.uddernetworks.mspaint.ocr;
+
+/**
+ * A horizontal strip of an image, spanning the full width of it, which contains zero or more lines of text.
+ */
+public class LineBand {
+
+    private final int top;
+    private final int bottom;
+
+    /**
+     * Creates a {@link LineBand}.
+     *
+     * @param top The first row of the band, inclusive
+     * @param bottom The last row of the band, exclusive
+     */
+    public LineBand(int top, int bottom) {
+        this.top = top;
+        this.bottom = bottom;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    public int getHeight() {
+        return this.bottom - this.top;
+    }
+
+    public boolean contains(int y) {
+        return this.top <= y && y < this.bottom;
+    }
+
+    public LineBand merge(LineBand other) {
+        return new LineBand(Math.min(this.top, other.top), Math.max(this.bottom, other.bottom));
+    }
+
+    @Override
+    public String toString() {
+        return "LineBand[" + this.top + ", " + this.bottom + ")";
+    }
+}
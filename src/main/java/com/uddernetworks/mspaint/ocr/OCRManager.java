@@ -1,22 +1,36 @@
 package com.uddernetworks.mspaint.ocr;
 
+import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.main.PagedImage;
+import com.uddernetworks.mspaint.main.RasterCache;
 import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.configuration.ConfigReflectionCacher;
 import com.uddernetworks.newocr.configuration.ReflectionCacher;
 import com.uddernetworks.newocr.recognition.Actions;
 import com.uddernetworks.newocr.recognition.Scan;
 import com.uddernetworks.newocr.recognition.ScannedImage;
 import com.uddernetworks.newocr.recognition.Train;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.OptionalDouble;
-import java.util.function.Predicate;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class OCRManager {
@@ -24,47 +38,257 @@ public class OCRManager {
     private static Logger LOGGER = LoggerFactory.getLogger(OCRManager.class);
 
     private ReflectionCacher reflectionCacher;
-    private Map<String, FontData> fontDataMap;
+    private Map<String, CompletableFuture<FontData>> fontDataMap;
+    private ScanCache scanCache;
+    private volatile ScanExecutor scanExecutor;
+    private ScanScheduler scanScheduler;
+    private Map<ScannedImage, FontMetricsEntry> fontMetrics = Collections.synchronizedMap(new WeakHashMap<>());
 
-    private FontData activeFont;
+    private volatile FontData activeFont;
     private StartupLogic startupLogic;
 
     public OCRManager(StartupLogic startupLogic) {
         this.reflectionCacher = new ConfigReflectionCacher();
-        this.fontDataMap = new HashMap<>();
+        this.fontDataMap = new ConcurrentHashMap<>();
+        this.scanCache = new ScanCache(new File(MainGUI.APP_DATA, "scan_cache"));
+        this.scanExecutor = new ScanExecutor();
+        this.scanScheduler = new ScanScheduler();
         this.startupLogic = startupLogic;
+
+        var ocrMetrics = OCRMetrics.getInstance();
+        ocrMetrics.setQueueSize(() -> this.scanScheduler.getPendingCount() + this.scanExecutor.getQueuedCount());
+        SettingsManager.getInstance().<Integer>onChangeSetting(Setting.OCR_METRICS_LOG_INTERVAL, ocrMetrics::startLogging, true);
     }
 
+    /**
+     * Sets the active font, waiting for it to load if it hasn't been preloaded via {@link #preloadFonts(Map)}.
+     *
+     * @param name The name of the font
+     * @param config The path of the font's config
+     */
     public void setActiveFont(String name, String config) {
-        if (!this.fontDataMap.containsKey(name)) {
-            LOGGER.info("Loading initial font data for " + name + " at " + config);
-            (this.activeFont = new FontData(this, name, config)).initialize();
+        var previous = this.activeFont;
+        this.activeFont = loadFont(name, config).join();
+
+        if (previous == null || previous == this.activeFont) return;
+
+        // Fonts removed or reloaded while active were skipped by closeFont, so they're closed once they're replaced.
+        // Otherwise the previous font stays loaded so switching back is quick, but its scanners aren't needed until then
+        if (getFontData(previous.getFontName()).orElse(null) != previous) {
+            closeFont(previous);
         } else {
-            this.activeFont = this.fontDataMap.get(name);
+            previous.clearScans();
         }
     }
 
-    public double getFontSize(ScannedImage scannedImage) {
-        var descriptiveStatistics = new DescriptiveStatistics();
+    /**
+     * Loads every given font in the background, and removes any previously loaded fonts not given.
+     *
+     * @param fonts The fonts, with the key being their name and the value their config path
+     * @return A future completing once every font has loaded
+     */
+    public CompletableFuture<Void> preloadFonts(Map<String, String> fonts) {
+        long start = System.currentTimeMillis();
+
+        this.fontDataMap.keySet().removeIf(name -> {
+            if (fonts.containsKey(name)) return false;
+            this.fontDataMap.get(name).thenAccept(this::closeFont);
+            return true;
+        });
+
+        var futures = fonts.entrySet().stream()
+                .map(entry -> loadFont(entry.getKey(), entry.getValue()).thenCompose(fontData -> this.scanExecutor.supply(() -> {
+                    // Loading the characters up front means even the first render after a switch doesn't hit the database
+                    try {
+                        if (fontData.getDatabaseManager() != null && fontData.getDatabaseManager().isTrainedSync()) fontData.getCharacterSnapshot();
+                    } catch (ExecutionException | InterruptedException e) {
+                        LOGGER.error("Unable to load the characters of " + fontData.getFontName(), e);
+                    }
+
+                    return fontData;
+                })))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(futures).whenComplete((ignored, throwable) -> {
+            if (throwable != null) LOGGER.error("Error while preloading fonts", throwable);
+            LOGGER.info("Preloaded {} fonts in {}ms", fonts.size(), System.currentTimeMillis() - start);
+            getMemoryFootprints().forEach((name, bytes) -> LOGGER.info("Font {} is using about {} KB", name, bytes / 1024));
+        });
+    }
+
+    /**
+     * Gets the {@link FontData} of the given font, loading it on the scan executor if it hasn't been loaded yet or if
+     * its config path has changed.
+     *
+     * @param name The name of the font
+     * @param config The path of the font's config
+     * @return A future of the loaded {@link FontData}
+     */
+    public CompletableFuture<FontData> loadFont(String name, String config) {
+        return this.fontDataMap.compute(name, (key, existing) -> {
+            if (existing != null && !existing.isCompletedExceptionally()) {
+                var loaded = existing.getNow(null);
+                if (loaded == null || loaded.getConfigPath().equals(config)) return existing;
+
+                if (loaded != this.activeFont) closeFont(loaded);
+            }
+
+            LOGGER.info("Loading font data for " + name + " at " + config);
+            return this.scanExecutor.supply(() -> {
+                var fontData = new FontData(this, name, config);
+                fontData.initialize();
+                return fontData;
+            });
+        });
+    }
+
+    /**
+     * Gets a loaded {@link FontData} by its name.
+     *
+     * @param name The name of the font
+     * @return The {@link FontData}, if it has finished loading
+     */
+    public Optional<FontData> getFontData(String name) {
+        return Optional.ofNullable(this.fontDataMap.get(name)).map(future -> future.getNow(null));
+    }
+
+    /**
+     * Gets the estimated memory used by each loaded font.
+     *
+     * @return The names of the fonts, and the estimated amount of bytes they use
+     */
+    public Map<String, Long> getMemoryFootprints() {
+        var footprints = new TreeMap<String, Long>();
+        this.fontDataMap.forEach((name, future) -> {
+            var fontData = future.getNow(null);
+            if (fontData != null) footprints.put(name, fontData.getMemoryFootprint());
+        });
+
+        return footprints;
+    }
+
+    private void closeFont(FontData fontData) {
+        if (fontData == this.activeFont) return;
+        LOGGER.info("Unloading font data for {}", fontData.getFontName());
+        fontData.close();
+    }
+
+    /**
+     * Scans the given image with the active font. The image is decoded once through the {@link RasterCache} and
+     * recognized straight from memory. If auto-cropping is enabled, only the part of the image containing ink is
+     * scanned, downscaled if its text is far larger than the trained sizes. If split scanning is enabled and the image
+     * is tall enough, the image is cut into bands at the whitespace between lines, and the bands are scanned in
+     * parallel. Images split into pages by {@link PagedImage} are stitched back together and scanned as a whole.
+     * Letters are always returned in the coordinates of the original image. When run by a {@link ScanJob}, the scan
+     * stops before the next band once the job is cancelled.
+     *
+     * @param inputImage The image to scan
+     * @return The {@link ScannedImage}
+     * @throws CancellationException If the {@link ScanJob} running the scan was cancelled
+     */
+    public ScannedImage scanImage(File inputImage) {
+        var fontData = this.activeFont;
+        var job = ScanJob.getCurrent().orElse(null);
+        var settingsManager = SettingsManager.getInstance();
+        boolean autoCrop = settingsManager.getSetting(Setting.OCR_AUTO_CROP);
+        boolean splitLines = settingsManager.getSetting(Setting.OCR_SPLIT_LINES);
+
+        BufferedImage image;
+        try {
+            image = RasterCache.getInstance().getImage(inputImage);
+        } catch (IOException e) {
+            LOGGER.error("Unable to read " + inputImage.getName() + ", leaving it to the recognizer", e);
+            return recognize(fontData, inputImage);
+        }
+
+        if (image == null) return recognize(fontData, inputImage);
+
+        try {
+            var prepared = autoCrop ? PreparedImage.prepare(image, settingsManager.getSetting(Setting.TRAIN_UPPER_BOUND)) : PreparedImage.unchanged(image);
+            var scanImage = prepared.getImage();
+
+            var bands = List.of(new LineBand(0, scanImage.getHeight()));
+            if (splitLines && scanImage.getHeight() >= settingsManager.<Integer>getSetting(Setting.OCR_SPLIT_MIN_HEIGHT)) {
+                bands = BandScanner.groupBands(BandScanner.getWhitespaceBands(scanImage), this.scanExecutor.getParallelism() * 2);
+            }
+
+            if (!prepared.isUnchanged()) {
+                LOGGER.info("Scanning {} cropped to {}x{} at {}x scale", inputImage.getName(), scanImage.getWidth(), scanImage.getHeight(), prepared.getScale());
+            }
+
+            if (bands.size() > 1) LOGGER.info("Scanning {} in {} bands", inputImage.getName(), bands.size());
 
-        var sizes = scannedImage
-                .getGrid()
-                .values()
-                .stream()
-                .flatMap(List::stream)
-                .filter(imageLetter -> imageLetter.getLetter() != ' ')
-                .map(getActions()::getFontSize)
-                .filter(OptionalDouble::isPresent)
-                .map(OptionalDouble::getAsDouble)
-                .peek(descriptiveStatistics::addValue)
-                .collect(Collectors.toCollection(DoubleArrayList::new));
+            var results = scanBands(fontData, scanImage, bands, job);
+            return OCRMetrics.getInstance().time(OCRPhase.LINE_ASSEMBLY, () -> {
+                var lines = new TreeMap<Integer, List<ImageLetter>>();
+                results.forEach(result -> result.forEach(entry -> lines.put(entry.getKey(), entry.getValue())));
+                return BandScanner.createScannedImage(inputImage, image, prepared.restore(lines));
+            });
+        } catch (CompletionException e) {
+            // A band that stopped for a cancelled job isn't a failure to fall back from
+            if (job != null) job.throwIfCancelled();
+            LOGGER.error("Error while scanning a prepared or split " + inputImage.getName() + ", scanning it whole", e);
+            return recognize(fontData, inputImage);
+        }
+    }
+
+    // Scans every band, in parallel on the scan executor if there's more than one. Scans already running on a scan
+    // worker, such as those from scanAll, run their bands inline, as joining tasks of the same pool from its own
+    // workers would block them while the image-level tasks already keep every worker busy
+    private List<List<Map.Entry<Integer, List<ImageLetter>>>> scanBands(FontData fontData, BufferedImage image, List<LineBand> bands, ScanJob job) {
+        if (bands.size() == 1 || ScanExecutor.isWorkerThread()) {
+            var results = new ArrayList<List<Map.Entry<Integer, List<ImageLetter>>>>(bands.size());
+            for (var band : bands) {
+                if (job != null) job.throwIfCancelled();
+                results.add(BandScanner.scanBand(fontData.getScan(), image, band));
+            }
+
+            return results;
+        }
+
+        var futures = bands.stream().map(band -> this.scanExecutor.supply(() -> {
+            if (job != null) job.throwIfCancelled();
+            return BandScanner.scanBand(fontData.getScan(), image, band);
+        })).collect(Collectors.toList());
+
+        var results = new ArrayList<List<Map.Entry<Integer, List<ImageLetter>>>>(futures.size());
+        for (var future : futures) {
+            // Bands already running finish on their own, but no more are started
+            if (job != null && job.isCancelled()) {
+                futures.forEach(remaining -> remaining.cancel(false));
+                job.throwIfCancelled();
+            }
 
-        var lowerBound = descriptiveStatistics.getPercentile(20);
-        var upperBound = descriptiveStatistics.getPercentile(80);
+            results.add(future.join());
+        }
+
+        return results;
+    }
 
-        sizes.removeIf((Predicate<Double>) value -> value > upperBound || value < lowerBound);
+    private ScannedImage recognize(FontData fontData, File inputImage) {
+        return OCRMetrics.getInstance().time(OCRPhase.RECOGNITION, () -> fontData.getScan().scanImage(inputImage));
+    }
+
+    /**
+     * Gets the {@link FontMetrics} of the given {@link ScannedImage} measured with the active font, computing them only
+     * the first time they're requested for the image and font. Switching fonts recomputes them, as sizes depend on the
+     * font's trained characters.
+     *
+     * @param scannedImage The {@link ScannedImage}
+     * @return The {@link FontMetrics}
+     */
+    public FontMetrics getFontMetrics(ScannedImage scannedImage) {
+        var fontData = this.activeFont;
+        var entry = this.fontMetrics.get(scannedImage);
+        if (entry != null && entry.fontData == fontData) return entry.metrics;
+
+        var metrics = FontMetrics.compute(scannedImage, fontData.getActions());
+        this.fontMetrics.put(scannedImage, new FontMetricsEntry(fontData, metrics));
+        return metrics;
+    }
 
-        return sizes.stream().mapToDouble(Double::valueOf).average().orElse(0D);
+    public double getFontSize(ScannedImage scannedImage) {
+        return getFontMetrics(scannedImage).getFontSize();
     }
 
     public Scan getScan() {
@@ -79,6 +303,32 @@ public class OCRManager {
         return this.activeFont.getActions();
     }
 
+    public ScanCache getScanCache() {
+        return scanCache;
+    }
+
+    public ScanExecutor getScanExecutor() {
+        return scanExecutor;
+    }
+
+    /**
+     * Replaces the {@link ScanExecutor} with one of the given parallelism, which bounds every scan, including the bands
+     * of split images, to that many threads. Tasks already on the previous executor finish on it.
+     *
+     * @param parallelism The amount of threads to scan with
+     */
+    public synchronized void setScanParallelism(int parallelism) {
+        var previous = this.scanExecutor;
+        if (previous.getParallelism() == parallelism) return;
+
+        this.scanExecutor = new ScanExecutor(parallelism);
+        previous.shutdown();
+    }
+
+    public ScanScheduler getScanScheduler() {
+        return scanScheduler;
+    }
+
     public ReflectionCacher getReflectionCacher() {
         return reflectionCacher;
     }
@@ -86,4 +336,16 @@ public class OCRManager {
     public FontData getActiveFont() {
         return this.activeFont;
     }
+
+    // The metrics of a scan along with the font they were measured with, as the same scan may be measured again once
+    // the font is switched
+    private static class FontMetricsEntry {
+        private final FontData fontData;
+        private final FontMetrics metrics;
+
+        FontMetricsEntry(FontData fontData, FontMetrics metrics) {
+            this.fontData = fontData;
+            this.metrics = metrics;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package com.uddernetworks.mspaint.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each {@link OCRPhase} of scanning takes, along with the throughput of letters and the amount of
+ * queued scans. Everything is exposed over JMX under {@code com.uddernetworks.mspaint:type=OCRMetrics}, and is
+ * periodically logged once {@link #startLogging(int)} has been invoked.
+ */
+public class OCRMetrics implements OCRMetricsMBean {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(OCRMetrics.class);
+
+    private static final String DOMAIN = "com.uddernetworks.mspaint";
+
+    private static OCRMetrics instance = new OCRMetrics();
+
+    private final Map<OCRPhase, PhaseHistogram> histograms = new EnumMap<>(OCRPhase.class);
+    private final LongAdder scannedImages = new LongAdder();
+    private final LongAdder scannedLetters = new LongAdder();
+    private final LongAdder letterNanos = new LongAdder();
+    private volatile IntSupplier queueSize = () -> 0;
+
+    private ScheduledExecutorService logExecutor;
+    private ScheduledFuture<?> logFuture;
+    private long lastLoggedImages = -1;
+
+    private OCRMetrics() {
+        for (var phase : OCRPhase.values()) this.histograms.put(phase, new PhaseHistogram(phase));
+
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=OCRMetrics"));
+            for (var histogram : this.histograms.values()) {
+                server.registerMBean(histogram, new ObjectName(DOMAIN + ":type=OCRMetrics,phase=" + histogram.getPhase().name()));
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register the OCR metrics MBeans", e);
+        }
+    }
+
+    public static OCRMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Records a single duration of a phase.
+     *
+     * @param phase The phase
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(OCRPhase phase, long nanos) {
+        this.histograms.get(phase).record(nanos);
+    }
+
+    /**
+     * Runs and times the given task as the given phase.
+     *
+     * @param phase The phase
+     * @param task The task
+     * @param <T> The type of the result
+     * @return The result of the task
+     */
+    public <T> T time(OCRPhase phase, Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a completed scan of an image, for the throughput of letters.
+     *
+     * @param letters The amount of letters in the image
+     * @param nanos The time the whole scan took in nanoseconds
+     */
+    public void recordScan(int letters, long nanos) {
+        this.scannedImages.increment();
+        this.scannedLetters.add(letters);
+        this.letterNanos.add(nanos);
+        record(OCRPhase.TOTAL, nanos);
+    }
+
+    /**
+     * Sets where the amount of queued scans is read from.
+     *
+     * @param queueSize The supplier of the queue size
+     */
+    public void setQueueSize(IntSupplier queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Starts logging a summary of the metrics at a fixed interval, replacing any previous interval. Nothing is logged
+     * for intervals without any scans.
+     *
+     * @param intervalSeconds The seconds between summaries, or 0 to stop logging
+     */
+    public synchronized void startLogging(int intervalSeconds) {
+        if (this.logFuture != null) this.logFuture.cancel(false);
+        this.logFuture = null;
+        if (intervalSeconds <= 0) return;
+
+        if (this.logExecutor == null) {
+            this.logExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "OCR-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        this.logFuture = this.logExecutor.scheduleAtFixedRate(this::logSummary, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public PhaseHistogram getHistogram(OCRPhase phase) {
+        return this.histograms.get(phase);
+    }
+
+    @Override
+    public long getScannedImages() {
+        return this.scannedImages.sum();
+    }
+
+    @Override
+    public long getScannedLetters() {
+        return this.scannedLetters.sum();
+    }
+
+    @Override
+    public double getLettersPerSecond() {
+        var nanos = this.letterNanos.sum();
+        return nanos == 0 ? 0 : getScannedLetters() / (nanos / 1_000_000_000D);
+    }
+
+    @Override
+    public int getScanQueueSize() {
+        return this.queueSize.getAsInt();
+    }
+
+    @Override
+    public String getSummary() {
+        var summary = new StringBuilder(String.format("%d images, %d letters, %.0f letters/s, %d queued", getScannedImages(),
+                getScannedLetters(), getLettersPerSecond(), getScanQueueSize()));
+
+        for (var histogram : this.histograms.values()) {
+            if (histogram.getCount() > 0) summary.append("\n    ").append(histogram);
+        }
+
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        this.histograms.values().forEach(PhaseHistogram::reset);
+        this.scannedImages.reset();
+        this.scannedLetters.reset();
+        this.letterNanos.reset();
+    }
+
+    private void logSummary() {
+        var images = getScannedImages();
+        if (images == this.lastLoggedImages) return;
+        this.lastLoggedImages = images;
+
+        LOGGER.info("OCR metrics: {}", getSummary());
+    }
+}
@@ -0,0 +1,19 @@
+package com.uddernetworks.mspaint.ocr;
+
+/**
+ * The JMX view of {@link OCRMetrics}.
+ */
+public interface OCRMetricsMBean {
+
+    long getScannedImages();
+
+    long getScannedLetters();
+
+    double getLettersPerSecond();
+
+    int getScanQueueSize();
+
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,23 @@
+package com.uddernetworks.mspaint.ocr;
+
+/**
+ * The phases of turning an image into text that are timed by {@link OCRMetrics}.
+ */
+public enum OCRPhase {
+    DECODE("Decode"), // Reading and decoding the PNG
+    CACHE_LOOKUP("Cache lookup"), // Hashing the PNG and reading a cached scan
+    LINE_SPLIT("Line split"), // Binarizing rows to find the whitespace between lines for split and band scans
+    RECOGNITION("Recognition"), // NewOCR's binarization, segmentation, character matching and mergence
+    LINE_ASSEMBLY("Line assembly"), // Stitching scanned bands back together and building the text
+    TOTAL("Total"); // The entire scan of an image
+
+    private final String displayName;
+
+    OCRPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
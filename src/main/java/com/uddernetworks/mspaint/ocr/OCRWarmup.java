@@ -0,0 +1,107 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.main.PNGWriter;
+import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exercises the OCR of a font in the background as soon as it becomes active, so the database connection, the
+ * character snapshot and the recognition path are all loaded before the user's first real scan.
+ */
+public class OCRWarmup {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(OCRWarmup.class);
+
+    private static final String[] SAMPLE_LINES = {
+            "public class Main {",
+            "    int x = (a + b) * 2;",
+            "}"
+    };
+
+    private final StartupLogic startupLogic;
+
+    public OCRWarmup(StartupLogic startupLogic) {
+        this.startupLogic = startupLogic;
+    }
+
+    /**
+     * Warms up the given font on the scan executor, if enabled by {@link Setting#OCR_WARMUP}. Fonts that haven't
+     * been trained are skipped.
+     *
+     * @param fontData The font to warm up
+     * @return A future completing once the warm-up has finished
+     */
+    public CompletableFuture<Void> warmup(FontData fontData) {
+        var settingsManager = SettingsManager.getInstance();
+        if (fontData == null || !settingsManager.<Boolean>getSetting(Setting.OCR_WARMUP)) return CompletableFuture.completedFuture(null);
+
+        int size = settingsManager.getSetting(Setting.EDIT_FILE_SIZE);
+        var ocrManager = this.startupLogic.getOCRManager();
+
+        return ocrManager.getScanExecutor().supply(() -> {
+            try {
+                var databaseManager = fontData.getDatabaseManager();
+                if (databaseManager == null || !databaseManager.isTrainedSync()) {
+                    LOGGER.info("Skipping warm-up of untrained font {}", fontData.getFontName());
+                    return null;
+                }
+
+                long start = System.currentTimeMillis();
+
+                fontData.getCharacterSnapshot();
+                long snapshotTime = System.currentTimeMillis();
+
+                this.startupLogic.getCenterPopulator().generateCenters(size);
+                long centersTime = System.currentTimeMillis();
+
+                var sampleFile = Files.createTempFile("warmup_", ".png").toFile();
+                try {
+                    PNGWriter.getInstance().write(createSampleImage(fontData, size), sampleFile, PNGWriter.Profile.FAST);
+                    fontData.getScan().scanImage(sampleFile);
+                } finally {
+                    sampleFile.delete();
+                }
+
+                long end = System.currentTimeMillis();
+                LOGGER.info("Warmed up {} in {}ms (snapshot {}ms, centers {}ms, scan {}ms)", fontData.getFontName(),
+                        end - start, snapshotTime - start, centersTime - snapshotTime, end - centersTime);
+            } catch (Exception e) {
+                LOGGER.warn("Unable to warm up " + fontData.getFontName(), e);
+            }
+
+            return null;
+        });
+    }
+
+    private BufferedImage createSampleImage(FontData fontData, int size) {
+        var font = new Font(fontData.getFontName(), Font.PLAIN, size);
+        var lineHeight = size + (int) (size * 0.5);
+
+        var measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        var fontMetrics = measure.getFontMetrics(font);
+        var width = 0;
+        for (var line : SAMPLE_LINES) width = Math.max(width, fontMetrics.stringWidth(line));
+        measure.dispose();
+
+        var image = new BufferedImage(width + size * 2, lineHeight * (SAMPLE_LINES.length + 1), BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON));
+        graphics.setFont(font);
+        graphics.setColor(Color.BLACK);
+
+        for (int i = 0; i < SAMPLE_LINES.length; i++) graphics.drawString(SAMPLE_LINES[i], size, lineHeight * (i + 1));
+
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,113 @@
+package com.uddernetworks.mspaint.ocr;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of the durations of an {@link OCRPhase}. Durations are counted in power of two buckets of
+ * microseconds, so percentiles are accurate to within a factor of two while recording stays allocation free.
+ */
+public class PhaseHistogram implements PhaseHistogramMBean {
+
+    private static final int BUCKETS = 64;
+
+    private final OCRPhase phase;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public PhaseHistogram(OCRPhase phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Records a single duration of the phase.
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) return;
+
+        var micros = nanos / 1000;
+        this.buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(micros) - 1 + (micros == 0 ? 1 : 0));
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public OCRPhase getPhase() {
+        return phase;
+    }
+
+    @Override
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        var count = getCount();
+        return count == 0 ? 0 : this.totalNanos.sum() / (double) count / 1_000_000D;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return this.maxNanos.get() / 1_000_000D;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return getPercentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    /**
+     * Gets the upper bound of the bucket the given percentile of durations fall in.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The duration in milliseconds, never more than the longest recorded duration
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        var counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) total += counts[i] = this.buckets.get(i);
+        if (total == 0) return 0;
+
+        var target = (long) Math.ceil(total * percentile / 100D);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, target)) {
+                var upperMicros = i >= 62 ? Long.MAX_VALUE : 1L << (i + 1);
+                return Math.min(upperMicros / 1000D, getMaxMillis());
+            }
+        }
+
+        return getMaxMillis();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) this.buckets.set(i, 0);
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d, mean %.1fms, p50 %.1fms, p90 %.1fms, p99 %.1fms, max %.1fms", this.phase.getDisplayName(),
+                getCount(), getMeanMillis(), getP50Millis(), getP90Millis(), getP99Millis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,21 @@
+package com.uddernetworks.mspaint.ocr;
+
+/**
+ * The JMX view of a {@link PhaseHistogram}, with all times in milliseconds.
+ */
+public interface PhaseHistogramMBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    void reset();
+}
@@ -0,0 +1,217 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.main.ImageUtil;
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * An image cropped to the bounding box of its ink, and downscaled if its text is much larger than the trained font
+ * sizes, so the OCR doesn't spend time on empty canvas. Images are only cropped when a meaningful part of them is empty.
+ * Letters scanned from the prepared image are translated back into the coordinates of the original image with
+ * {@link #restore(TreeMap)}, which modifies the letters themselves.
+ */
+public class PreparedImage {
+
+    // Whitespace kept around the ink so letters touching the crop aren't cut off
+    private static final int PADDING = 8;
+
+    // Text is only downscaled once its lines are this many times taller than the largest trained size
+    private static final double DOWNSCALE_RATIO = 2;
+
+    // Crops removing less than this ratio of the image's area aren't worth translating the letters back for
+    private static final double MIN_CROPPED_RATIO = 0.25;
+
+    private final BufferedImage image;
+    private final int offsetX;
+    private final int offsetY;
+    private final double scale;
+    private final boolean unchanged;
+
+    private PreparedImage(BufferedImage image, int offsetX, int offsetY, double scale, boolean unchanged) {
+        this.image = image;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.scale = scale;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Creates a {@link PreparedImage} that leaves the image as it is.
+     *
+     * @param image The image
+     * @return The {@link PreparedImage}
+     */
+    public static PreparedImage unchanged(BufferedImage image) {
+        return new PreparedImage(image, 0, 0, 1, true);
+    }
+
+    /**
+     * Crops the image to its ink, and downscales it if its lines are far taller than the given height.
+     *
+     * @param image The image
+     * @param maxLineHeight The height in pixels of the tallest trained line of text
+     * @return The {@link PreparedImage}, which is unchanged if the image is blank or too little of it would be cropped
+     */
+    public static PreparedImage prepare(BufferedImage image, int maxLineHeight) {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var pixels = getPixels(image);
+        var row = new int[width];
+
+        int minX = width;
+        int maxX = -1;
+        int minY = height;
+        int maxY = -1;
+        var runHeights = new ArrayList<Integer>();
+        int runStart = -1;
+
+        for (int y = 0; y < height; y++) {
+            int rowOffset = 0;
+            int[] rowPixels = pixels;
+            if (pixels == null) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                rowPixels = row;
+            } else {
+                rowOffset = y * width;
+            }
+
+            int first = -1;
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                if (!isInk(rowPixels[rowOffset + x])) continue;
+                if (first == -1) first = x;
+                last = x;
+            }
+
+            if (first != -1) {
+                minX = Math.min(minX, first);
+                maxX = Math.max(maxX, last);
+                minY = Math.min(minY, y);
+                maxY = y;
+                if (runStart == -1) runStart = y;
+            } else if (runStart != -1) {
+                runHeights.add(y - runStart);
+                runStart = -1;
+            }
+        }
+
+        if (runStart != -1) runHeights.add(height - runStart);
+        if (maxX == -1) return unchanged(image);
+
+        var left = Math.max(0, minX - PADDING);
+        var top = Math.max(0, minY - PADDING);
+        var right = Math.min(width, maxX + 1 + PADDING);
+        var bottom = Math.min(height, maxY + 1 + PADDING);
+
+        runHeights.sort(null);
+        var lineHeight = runHeights.get(runHeights.size() / 2);
+        var scale = lineHeight > maxLineHeight * DOWNSCALE_RATIO ? maxLineHeight / (double) lineHeight : 1;
+
+        var croppedArea = (long) (right - left) * (bottom - top);
+        if (scale == 1 && croppedArea > (long) width * height * (1 - MIN_CROPPED_RATIO)) return unchanged(image);
+
+        var cropped = image.getSubimage(left, top, right - left, bottom - top);
+        if (scale == 1) return new PreparedImage(cropped, left, top, 1, false);
+
+        var scaledWidth = Math.max(1, (int) Math.round(cropped.getWidth() * scale));
+        var scaledHeight = Math.max(1, (int) Math.round(cropped.getHeight() * scale));
+        var scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+        var graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(cropped, 0, 0, scaledWidth, scaledHeight, null);
+        graphics.dispose();
+
+        return new PreparedImage(scaled, left, top, scale, false);
+    }
+
+    // Reads the backing array directly when the image is a plain ARGB image, such as those from the RasterCache
+    private static int[] getPixels(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB && image.getType() != BufferedImage.TYPE_INT_RGB) return null;
+
+        var raster = image.getRaster();
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) return null;
+
+        var pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+        return pixels.length == image.getWidth() * image.getHeight() ? pixels : null;
+    }
+
+    private static boolean isInk(int argb) {
+        return (argb >>> 24) != 0 && ImageUtil.shouldBeBlack((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF);
+    }
+
+    /**
+     * Translates lines scanned from the prepared image into the coordinates of the original image. This mutates the
+     * given {@link ImageLetter}s in place rather than copying them: their positions and sizes are overwritten, and
+     * their values are replaced with resized ones if the image was downscaled. The returned map holds the same line
+     * lists, only rekeyed, so letters shared with anything else, such as a cached scan, must not be passed in.
+     *
+     * @param lines The scanned lines, keyed by their grid key, whose letters are modified
+     * @return The same lines keyed by their grid key in the original image
+     */
+    public TreeMap<Integer, List<ImageLetter>> restore(TreeMap<Integer, List<ImageLetter>> lines) {
+        if (this.offsetX == 0 && this.offsetY == 0 && this.scale == 1) return lines;
+
+        var restored = new TreeMap<Integer, List<ImageLetter>>();
+        lines.forEach((key, line) -> {
+            for (var imageLetter : line) {
+                imageLetter.setX(unscale(imageLetter.getX()) + this.offsetX);
+                imageLetter.setY(unscale(imageLetter.getY()) + this.offsetY);
+
+                if (this.scale != 1) {
+                    var width = Math.max(1, unscale(imageLetter.getWidth()));
+                    var height = Math.max(1, unscale(imageLetter.getHeight()));
+                    imageLetter.setWidth(width);
+                    imageLetter.setHeight(height);
+                    if (imageLetter.getValues() != null) imageLetter.setValues(resize(imageLetter.getValues(), width, height));
+                }
+            }
+
+            restored.put(unscale(key) + this.offsetY, line);
+        });
+
+        return restored;
+    }
+
+    private int unscale(int value) {
+        return this.scale == 1 ? value : (int) Math.round(value / this.scale);
+    }
+
+    // Nearest-neighbour resize of a [y][x] grid
+    private static boolean[][] resize(boolean[][] values, int width, int height) {
+        if (values.length == 0 || values[0].length == 0) return values;
+
+        var resized = new boolean[height][width];
+        for (int y = 0; y < height; y++) {
+            var sourceRow = values[Math.min(values.length - 1, y * values.length / height)];
+            for (int x = 0; x < width; x++) {
+                resized[y][x] = sourceRow[Math.min(sourceRow.length - 1, x * sourceRow.length / width)];
+            }
+        }
+
+        return resized;
+    }
+
+    /**
+     * Gets the image to scan.
+     *
+     * @return The cropped and possibly scaled image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+}
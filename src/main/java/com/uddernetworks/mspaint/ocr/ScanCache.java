@@ -0,0 +1,297 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.main.PagedImage;
+import com.uddernetworks.mspaint.main.RasterCache;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.DefaultScannedImage;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A content-addressed cache of {@link ScannedImage}s, kept both in memory and on disk. Entries are keyed by the hash
+ * of the PNG's bytes along with the font name, the contents of the font config and the training version of the
+ * {@link FontData} used to scan it, so any retrain, config edit or font switch naturally misses the cache. Every
+ * field of each letter is stored, so a cached scan is the same as a fresh one.
+ */
+public class ScanCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ScanCache.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_MEMORY_ENTRIES = 512;
+
+    private final File directory;
+    private final Map<String, byte[]> memoryCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    });
+
+    public ScanCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the cached {@link ScannedImage} of the given file if the exact same image has been scanned before with the
+     * given font, otherwise scans it with the given scanner and caches the result.
+     *
+     * @param fontData The font the image is being scanned with
+     * @param inputImage The PNG to scan
+     * @param scanner The function to scan the image if no cached copy exists
+     * @return The {@link ScannedImage}
+     */
+    public ScannedImage getOrScan(FontData fontData, File inputImage, Function<File, ScannedImage> scanner) {
+        if (!isEnabled()) return scanner.apply(inputImage);
+
+        long start = System.nanoTime();
+        String key;
+        try {
+            key = createKey(fontData, PagedImage.readBytes(inputImage));
+        } catch (IOException e) {
+            LOGGER.error("Unable to hash " + inputImage.getAbsolutePath() + ", scanning without the cache", e);
+            return scanner.apply(inputImage);
+        }
+
+        var cached = get(key, inputImage);
+        OCRMetrics.getInstance().record(OCRPhase.CACHE_LOOKUP, System.nanoTime() - start);
+        if (cached.isPresent()) {
+            LOGGER.info("Using cached scan of {}", inputImage.getName());
+            return cached.get();
+        }
+
+        var scannedImage = scanner.apply(inputImage);
+
+        // The scanner reads the file again, so if it was rewritten in the meantime, such as by MS Paint saving
+        // several times in a row, the scan is of different contents than the key and mustn't be stored under it
+        if (key.equals(tryCreateKey(fontData, inputImage))) {
+            put(key, scannedImage);
+        } else {
+            LOGGER.info("{} changed while being scanned, not caching the scan", inputImage.getName());
+        }
+
+        return scannedImage;
+    }
+
+    /**
+     * Gets a {@link ScannedImage} by its key, first from memory and then from the disk.
+     *
+     * @param key The key created via {@link #createKey(FontData, byte[])}
+     * @param inputImage The image file the key was created from
+     * @return The {@link ScannedImage}, if found
+     */
+    public Optional<ScannedImage> get(String key, File inputImage) {
+        var bytes = this.memoryCache.get(key);
+
+        if (bytes == null) {
+            var file = getCacheFile(key);
+            if (!file.isFile()) return Optional.empty();
+
+            try {
+                bytes = Files.readAllBytes(file.toPath());
+                this.memoryCache.put(key, bytes);
+            } catch (IOException e) {
+                LOGGER.error("Unable to read scan cache file " + file.getAbsolutePath(), e);
+                return Optional.empty();
+            }
+        }
+
+        try {
+            return Optional.of(deserialize(bytes, inputImage));
+        } catch (IOException e) {
+            LOGGER.warn("Discarding corrupt scan cache entry {}", key);
+            this.memoryCache.remove(key);
+            getCacheFile(key).delete();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a {@link ScannedImage} in memory and on the disk.
+     *
+     * @param key The key created via {@link #createKey(FontData, byte[])}
+     * @param scannedImage The {@link ScannedImage} to store
+     */
+    public void put(String key, ScannedImage scannedImage) {
+        if (scannedImage == null) return;
+
+        try {
+            var bytes = serialize(scannedImage);
+            this.memoryCache.put(key, bytes);
+
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) return;
+
+            var file = getCacheFile(key);
+            var temp = new File(this.directory, key + ".tmp");
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Unable to write scan cache entry " + key, e);
+        }
+    }
+
+    /**
+     * Removes every in-memory and on-disk entry.
+     */
+    public void clear() {
+        this.memoryCache.clear();
+
+        var files = this.directory.listFiles((dir, name) -> name.endsWith(".scan"));
+        if (files == null) return;
+        for (var file : files) file.delete();
+    }
+
+    /**
+     * Creates the key an image is cached under for the given font.
+     *
+     * @param fontData The font the image is scanned with
+     * @param pngBytes The raw bytes of the image file
+     * @return The hex key
+     */
+    public String createKey(FontData fontData, byte[] pngBytes) {
+        var digest = DigestUtils.getSha256Digest();
+        digest.update(pngBytes);
+        digest.update((fontData.getFontName() + "\0" + fontData.getConfigHash() + "\0" + fontData.isUsingInternal() + "\0" + fontData.getTrainVersion()).getBytes(StandardCharsets.UTF_8));
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private String tryCreateKey(FontData fontData, File inputImage) {
+        try {
+            return createKey(fontData, PagedImage.readBytes(inputImage));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean isEnabled() {
+        return SettingsManager.getInstance().<Boolean>getSetting(Setting.SCAN_CACHE);
+    }
+
+    private File getCacheFile(String key) {
+        return new File(this.directory, key + ".scan");
+    }
+
+    private byte[] serialize(ScannedImage scannedImage) throws IOException {
+        var byteStream = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(new GZIPOutputStream(byteStream))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(ImageLetterFields.getSignature());
+
+            var lineCount = scannedImage.getLineCount();
+            out.writeInt(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                var lineEntry = scannedImage.getLineEntry(i);
+                var line = lineEntry.getValue();
+
+                out.writeInt(lineEntry.getKey());
+                out.writeInt(line.size());
+                for (var imageLetter : line) {
+                    ImageLetterFields.write(out, imageLetter);
+                    writeValues(out, imageLetter.getValues());
+                }
+            }
+        }
+
+        return byteStream.toByteArray();
+    }
+
+    private ScannedImage deserialize(byte[] bytes, File inputImage) throws IOException {
+        try (var in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            if (in.readInt() != FORMAT_VERSION) throw new IOException("Unknown scan cache format");
+            if (!in.readUTF().equals(ImageLetterFields.getSignature())) throw new IOException("The scan cache entry has different letter fields");
+
+            var scannedImage = new DefaultScannedImage(inputImage, RasterCache.getInstance().getImage(inputImage), null);
+
+            var lineCount = in.readInt();
+            for (int i = 0; i < lineCount; i++) {
+                var lineY = in.readInt();
+                var letterCount = in.readInt();
+
+                List<ImageLetter> line = new ArrayList<>(letterCount);
+                for (int j = 0; j < letterCount; j++) {
+                    var imageLetter = ImageLetterFields.read(in);
+                    imageLetter.setValues(readValues(in));
+                    line.add(imageLetter);
+                }
+
+                scannedImage.addLine(lineY, line);
+            }
+
+            return scannedImage;
+        }
+    }
+
+    // Values are packed as bits, row by row
+    private void writeValues(DataOutputStream out, boolean[][] values) throws IOException {
+        if (values == null || values.length == 0) {
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+
+        var height = values.length;
+        var width = values[0].length;
+        out.writeInt(height);
+        out.writeInt(width);
+
+        int current = 0;
+        int bits = 0;
+        for (var row : values) {
+            for (int x = 0; x < width; x++) {
+                if (row[x]) current |= 1 << bits;
+                if (++bits == 8) {
+                    out.writeByte(current);
+                    current = 0;
+                    bits = 0;
+                }
+            }
+        }
+
+        if (bits > 0) out.writeByte(current);
+    }
+
+    private boolean[][] readValues(DataInputStream in) throws IOException {
+        var height = in.readInt();
+        var width = in.readInt();
+        var values = new boolean[height][width];
+
+        int current = 0;
+        int bits = 8;
+        for (var row : values) {
+            for (int x = 0; x < width; x++) {
+                if (bits == 8) {
+                    current = in.readUnsignedByte();
+                    bits = 0;
+                }
+
+                row[x] = (current & (1 << bits++)) != 0;
+            }
+        }
+
+        return values;
+    }
+}
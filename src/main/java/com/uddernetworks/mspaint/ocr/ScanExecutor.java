@@ -0,0 +1,123 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.code.ImageClass;
+import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A bounded work-stealing pool that all project-wide scanning goes through. Each worker thread gets its own scanner
+ * from {@link FontData#getScan()}, so any amount of images may be scanned at once with the same font.
+ */
+public class ScanExecutor {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ScanExecutor.class);
+
+    private final ForkJoinPool pool;
+
+    public ScanExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ScanExecutor(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), ScanWorkerThread::new, (thread, throwable) ->
+                LOGGER.error("Uncaught exception in " + thread.getName(), throwable), false);
+    }
+
+    /**
+     * Scans the given {@link ImageClass} on the pool.
+     *
+     * @param imageClass The {@link ImageClass} to scan
+     * @return A future of the resulting {@link ScannedImage}, completing with null if the image couldn't be scanned
+     */
+    public CompletableFuture<ScannedImage> submit(ImageClass imageClass) {
+        return supply(() -> {
+            imageClass.scan();
+            return imageClass.getScannedImage().orElse(null);
+        });
+    }
+
+    /**
+     * Scans every given {@link ImageClass} in parallel, reporting the progress to the given {@link MainGUI}.
+     *
+     * @param imageClasses The {@link ImageClass}es to scan
+     * @param mainGUI The {@link MainGUI} to report progress to, may be null
+     * @return A future completing once every image has been scanned. Images that couldn't be scanned are logged, so the
+     * future always completes normally
+     */
+    public CompletableFuture<Void> scanAll(Collection<ImageClass> imageClasses, MainGUI mainGUI) {
+        var total = imageClasses.size();
+        var done = new AtomicInteger();
+        var reportProgress = !MainGUI.HEADLESS && mainGUI != null;
+        var start = System.currentTimeMillis();
+
+        if (reportProgress) {
+            mainGUI.setStatusText("Scanning " + total + " image" + (total == 1 ? "" : "s") + "...");
+            mainGUI.updateLoading(0, Math.max(1, total));
+        }
+
+        return CompletableFuture.allOf(imageClasses.stream().map(imageClass -> submit(imageClass).handle((scannedImage, throwable) -> {
+            if (throwable != null) LOGGER.error("Error while scanning " + imageClass.getInputImage().getName(), throwable);
+            var current = done.incrementAndGet();
+            if (reportProgress) mainGUI.updateLoading(current, total);
+            return scannedImage;
+        })).toArray(CompletableFuture[]::new)).whenComplete((ignored, throwable) -> {
+            LOGGER.info("Scanned {} images in {}ms", total, System.currentTimeMillis() - start);
+            if (reportProgress) mainGUI.setStatusText("");
+        });
+    }
+
+    /**
+     * Runs a task on the pool.
+     *
+     * @param supplier The task
+     * @param <T> The type of the result
+     * @return A future of the result of the task
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, this.pool);
+    }
+
+    /**
+     * Gets the amount of tasks waiting to be run on the pool.
+     *
+     * @return The amount of queued tasks
+     */
+    public int getQueuedCount() {
+        return (int) Math.min(Integer.MAX_VALUE, this.pool.getQueuedSubmissionCount() + this.pool.getQueuedTaskCount());
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Gets if the current thread is a worker of a {@link ScanExecutor}, meaning per-image GUI status updates should
+     * be left to the executor.
+     *
+     * @return If the current thread is a scan worker
+     */
+    public static boolean isWorkerThread() {
+        return Thread.currentThread() instanceof ScanWorkerThread;
+    }
+
+    private static class ScanWorkerThread extends ForkJoinWorkerThread {
+
+        ScanWorkerThread(ForkJoinPool pool) {
+            super(pool);
+            setName("OCR-Scan-" + getPoolIndex());
+        }
+    }
+}
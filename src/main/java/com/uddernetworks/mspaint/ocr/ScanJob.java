@@ -0,0 +1,83 @@
+package com.uddernetworks.mspaint.ocr;
+
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A unit of work for a single file, queued by a {@link ScanScheduler}. Tasks should check {@link #isCancelled()} after
+ * any long-running step, such as the scan itself, and stop without applying their result if it returns true. While a
+ * task runs, its job is available to the scan itself through {@link #getCurrent()}, which stops between bands once
+ * the job is cancelled.
+ */
+public class ScanJob {
+
+    private static final ThreadLocal<ScanJob> CURRENT = new ThreadLocal<>();
+
+    private final File file;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile Consumer<ScanJob> task;
+    private volatile boolean cancelled;
+
+    ScanJob(File file, Consumer<ScanJob> task) {
+        this.file = file;
+        this.task = task;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets if the job has been superseded by a newer job for the same file, meaning its result is stale.
+     *
+     * @return If the job has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws a {@link CancellationException} if the job has been cancelled, to abandon a scan part way through.
+     *
+     * @throws CancellationException If the job has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (this.cancelled) throw new CancellationException("The scan of " + this.file.getName() + " has been superseded");
+    }
+
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Gets the job whose task is running on the current thread.
+     *
+     * @return The {@link ScanJob}, if the current thread is running one
+     */
+    public static Optional<ScanJob> getCurrent() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void setCurrent(ScanJob job) {
+        if (job == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(job);
+        }
+    }
+
+    Consumer<ScanJob> getTask() {
+        return task;
+    }
+
+    void setTask(Consumer<ScanJob> task) {
+        this.task = task;
+    }
+
+    CompletableFuture<Void> getFuture() {
+        return future;
+    }
+}
@@ -0,0 +1,144 @@
+package com.uddernetworks.mspaint.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Queues the rescanning of changed files. Only one job is kept pending per file, so a file written several times in a
+ * row is only scanned once for its latest version, and a running job is cancelled as soon as a newer version of its
+ * file is scheduled, stopping it at the next band it scans. The file the user is currently editing, set via
+ * {@link #setFocusedFile(File)}, is always run before any background files.
+ */
+public class ScanScheduler {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ScanScheduler.class);
+
+    private final int maxRunning;
+    private final ExecutorService executor;
+    private final Map<File, ScanJob> pending = new LinkedHashMap<>();
+    private final Map<File, ScanJob> running = new HashMap<>();
+    private volatile File focusedFile;
+
+    public ScanScheduler() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public ScanScheduler(int maxRunning) {
+        this.maxRunning = Math.max(1, maxRunning);
+
+        var threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.maxRunning, runnable -> {
+            var thread = new Thread(runnable, "OCR-Scheduler-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedules a task for the given file. If a job for the file is already waiting, its task is replaced by the
+     * given one, and if one is running, it is cancelled.
+     *
+     * @param file The file the task is for
+     * @param task The task, given its {@link ScanJob} to check for cancellation
+     * @return A future completing once the latest task for the file has finished
+     */
+    public synchronized CompletableFuture<Void> schedule(File file, Consumer<ScanJob> task) {
+        var key = file.getAbsoluteFile();
+
+        var job = this.pending.get(key);
+        if (job != null) {
+            LOGGER.info("Coalescing pending scan of {}", key.getName());
+            job.setTask(task);
+        } else {
+            job = new ScanJob(key, task);
+            this.pending.put(key, job);
+        }
+
+        var runningJob = this.running.get(key);
+        if (runningJob != null && !runningJob.isCancelled()) {
+            LOGGER.info("Cancelling superseded scan of {}", key.getName());
+            runningJob.cancel();
+            job.getFuture().whenComplete((ignored, throwable) -> runningJob.getFuture().complete(null));
+        }
+
+        dispatch();
+        return job.getFuture();
+    }
+
+    /**
+     * Sets the file the user is currently editing, which will be scanned before any other pending files.
+     *
+     * @param file The file being edited, or null if none are
+     */
+    public synchronized void setFocusedFile(File file) {
+        this.focusedFile = file == null ? null : file.getAbsoluteFile();
+    }
+
+    public File getFocusedFile() {
+        return focusedFile;
+    }
+
+    /**
+     * Gets the amount of jobs waiting to be run.
+     *
+     * @return The amount of pending jobs
+     */
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void dispatch() {
+        ScanJob job;
+        while (this.running.size() < this.maxRunning && (job = nextJob()) != null) {
+            var dispatched = job;
+            this.pending.remove(dispatched.getFile());
+            this.running.put(dispatched.getFile(), dispatched);
+            this.executor.execute(() -> run(dispatched));
+        }
+    }
+
+    // Files already being scanned are skipped, their pending job runs once the current one finishes
+    private ScanJob nextJob() {
+        var focused = this.focusedFile;
+        if (focused != null && !this.running.containsKey(focused)) {
+            var job = this.pending.get(focused);
+            if (job != null) return job;
+        }
+
+        return this.pending.values().stream().filter(job -> !this.running.containsKey(job.getFile())).findFirst().orElse(null);
+    }
+
+    private void run(ScanJob job) {
+        ScanJob.setCurrent(job);
+        try {
+            if (!job.isCancelled()) job.getTask().accept(job);
+        } catch (CancellationException e) {
+            LOGGER.info("Stopped superseded scan of {}", job.getFile().getName());
+        } catch (Exception e) {
+            LOGGER.error("Error while running the scheduled scan of " + job.getFile().getName(), e);
+        } finally {
+            ScanJob.setCurrent(null);
+            synchronized (this) {
+                this.running.remove(job.getFile());
+                dispatch();
+            }
+
+            if (!job.isCancelled()) job.getFuture().complete(null);
+        }
+    }
+}
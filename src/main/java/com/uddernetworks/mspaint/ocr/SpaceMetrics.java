@@ -0,0 +1,48 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+
+/**
+ * The trained dimensions of the space character, used to lay out generated text.
+ */
+public class SpaceMetrics {
+
+    private final double avgWidth;
+    private final double avgHeight;
+
+    public SpaceMetrics(double avgWidth, double avgHeight) {
+        this.avgWidth = avgWidth;
+        this.avgHeight = avgHeight;
+    }
+
+    public static SpaceMetrics of(DatabaseCharacter space) {
+        return new SpaceMetrics(space.getAvgWidth(), space.getAvgHeight());
+    }
+
+    public double getAvgWidth() {
+        return avgWidth;
+    }
+
+    public double getAvgHeight() {
+        return avgHeight;
+    }
+
+    /**
+     * Gets the width to height ratio of a space.
+     *
+     * @return The ratio
+     */
+    public double getRatio() {
+        return this.avgWidth / this.avgHeight;
+    }
+
+    /**
+     * Gets the gap between two characters for the given font size.
+     *
+     * @param size The font size
+     * @return The gap in pixels
+     */
+    public int getCharacterSpacing(int size) {
+        return (int) ((getRatio() * size) / 3D);
+    }
+}
@@ -0,0 +1,119 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.uddernetworks.newocr.recognition.OCRScan;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Records which sizes of a font have already been generated for training, along with the hash of each generated
+ * raster, and the hash of the image the font's database was last trained on. This lets the {@link TrainingPipeline}
+ * only generate sizes that are new or whose glyph set changed, and skip training entirely when the training image is
+ * identical to the one already in the database.
+ */
+public class TrainingManifest {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(TrainingManifest.class);
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private transient File file;
+
+    private String fontName;
+    private Map<Integer, SizeEntry> sizes = new TreeMap<>();
+    private String trainedImageHash;
+
+    /**
+     * Reads the manifest from the given file, or creates an empty one if it doesn't exist or can't be read.
+     *
+     * @param file The manifest file
+     * @param fontName The name of the font the manifest is for
+     * @return The {@link TrainingManifest}
+     */
+    public static TrainingManifest load(File file, String fontName) {
+        TrainingManifest manifest = null;
+
+        if (file.isFile()) {
+            try {
+                manifest = GSON.fromJson(Files.readString(file.toPath()), TrainingManifest.class);
+            } catch (IOException | JsonParseException e) {
+                LOGGER.warn("Unable to read the training manifest " + file.getAbsolutePath() + ", starting a new one", e);
+            }
+        }
+
+        if (manifest == null || !fontName.equals(manifest.fontName)) manifest = new TrainingManifest();
+        if (manifest.sizes == null) manifest.sizes = new TreeMap<>();
+        manifest.file = file;
+        manifest.fontName = fontName;
+        return manifest;
+    }
+
+    /**
+     * Gets the hash of a generated size, if it was generated with the current glyph set.
+     *
+     * @param size The font size
+     * @return The hash of the raster
+     */
+    public synchronized Optional<String> getSizeHash(int size) {
+        var entry = this.sizes.get(size);
+        if (entry == null || !getGlyphSetHash().equals(entry.glyphSetHash)) return Optional.empty();
+        return Optional.of(entry.rasterHash);
+    }
+
+    /**
+     * Records a freshly generated size.
+     *
+     * @param size The font size
+     * @param rasterHash The hash of the generated raster
+     */
+    public synchronized void putSize(int size, String rasterHash) {
+        this.sizes.put(size, new SizeEntry(getGlyphSetHash(), rasterHash));
+    }
+
+    public synchronized String getTrainedImageHash() {
+        return trainedImageHash;
+    }
+
+    public synchronized void setTrainedImageHash(String trainedImageHash) {
+        this.trainedImageHash = trainedImageHash;
+    }
+
+    /**
+     * Writes the manifest back to its file.
+     */
+    public synchronized void save() {
+        try {
+            this.file.getParentFile().mkdirs();
+            var temp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+            Files.writeString(temp.toPath(), GSON.toJson(this));
+            Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Unable to save the training manifest " + this.file.getAbsolutePath(), e);
+        }
+    }
+
+    private static String getGlyphSetHash() {
+        return DigestUtils.sha256Hex(OCRScan.RAW_STRING);
+    }
+
+    private static class SizeEntry {
+        private String glyphSetHash;
+        private String rasterHash;
+
+        SizeEntry(String glyphSetHash, String rasterHash) {
+            this.glyphSetHash = glyphSetHash;
+            this.rasterHash = rasterHash;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.main.PNGWriter;
+import com.uddernetworks.mspaint.main.RasterCache;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import com.uddernetworks.newocr.train.ComputerTrainGenerator;
+import com.uddernetworks.newocr.train.TrainGeneratorOptions;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates the training image of a {@link FontData} and trains it. Each font size between
+ * {@link Setting#TRAIN_LOWER_BOUND} and {@link Setting#TRAIN_UPPER_BOUND} is rendered on its own in parallel on the
+ * {@link ScanExecutor}, and the sizes are then stitched together, in order, into the single image NewOCR trains on.
+ * Generated sizes are kept on disk and recorded in the font's {@link TrainingManifest}, so only new or changed sizes
+ * are rendered again, and training is skipped if the resulting image is what the database was already trained on.
+ */
+public class TrainingPipeline {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(TrainingPipeline.class);
+
+    private final FontData fontData;
+    private final ScanExecutor scanExecutor;
+
+    private final TrainingManifest manifest;
+    private final File sizeDirectory;
+
+    public TrainingPipeline(FontData fontData, ScanExecutor scanExecutor, TrainingManifest manifest, File sizeDirectory) {
+        this.fontData = fontData;
+        this.scanExecutor = scanExecutor;
+        this.manifest = manifest;
+        this.sizeDirectory = sizeDirectory;
+    }
+
+    /**
+     * Generates the training image, rendering every size in parallel.
+     *
+     * @param output The file to write the training image to
+     * @param progress Invoked with the amount of sizes completed and the total amount of sizes after each size is done
+     * @return A future completing once the image has been written
+     */
+    public CompletableFuture<Void> generate(File output, BiConsumer<Integer, Integer> progress) {
+        var settingsManager = SettingsManager.getInstance();
+        int lowerBound = settingsManager.getSetting(Setting.TRAIN_LOWER_BOUND);
+        int upperBound = settingsManager.getSetting(Setting.TRAIN_UPPER_BOUND);
+        var total = Math.max(0, upperBound - lowerBound + 1);
+        var done = new AtomicInteger();
+        var reused = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        var futures = IntStream.rangeClosed(lowerBound, upperBound)
+                .mapToObj(size -> this.scanExecutor.supply(() -> {
+                    var sizeImage = getSize(size, reused);
+                    progress.accept(done.incrementAndGet(), total);
+                    return sizeImage;
+                }))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            var sizeImages = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+            try {
+                PNGWriter.getInstance().write(stitch(sizeImages), output, PNGWriter.Profile.FAST);
+                RasterCache.getInstance().invalidate(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                this.manifest.save();
+            }
+
+            LOGGER.info("Generated {} sizes of {} in {}ms, {} of which were unchanged", total, this.fontData.getFontName(),
+                    System.currentTimeMillis() - start, reused.get());
+        });
+    }
+
+    /**
+     * Trains the font on the given image, then invalidates everything derived from the previous training data and
+     * loads the newly trained characters. If the font has already been trained on an identical image, the existing
+     * database is kept as it is.
+     *
+     * @param trainImage The training image
+     * @return A future completing once training has finished
+     */
+    public CompletableFuture<Void> train(File trainImage) {
+        return CompletableFuture.runAsync(() -> {
+            String imageHash;
+            try {
+                imageHash = DigestUtils.sha256Hex(Files.readAllBytes(trainImage.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            var databaseManager = this.fontData.getDatabaseManager();
+            if (imageHash.equals(this.manifest.getTrainedImageHash()) && databaseManager != null && databaseManager.isTrainedSync()) {
+                LOGGER.info("{} has already been trained on an identical image, keeping the existing training data", this.fontData.getFontName());
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            this.fontData.getTrain().trainImage(trainImage);
+            long trained = System.currentTimeMillis();
+
+            this.fontData.markTrained();
+            this.manifest.setTrainedImageHash(imageHash);
+            this.manifest.save();
+
+            try {
+                this.fontData.refreshCharacterSnapshot();
+            } catch (ExecutionException | InterruptedException e) {
+                LOGGER.error("Error while loading the newly trained characters", e);
+            }
+
+            LOGGER.info("Trained {} in {}ms, loaded the trained characters in {}ms", this.fontData.getFontName(),
+                    trained - start, System.currentTimeMillis() - trained);
+        });
+    }
+
+    // Reuses the previously generated raster of the size if its hash still matches the manifest
+    private BufferedImage getSize(int size, AtomicInteger reused) {
+        var sizeFile = new File(this.sizeDirectory, "size_" + size + ".png");
+
+        try {
+            var expectedHash = this.manifest.getSizeHash(size);
+            if (expectedHash.isPresent() && sizeFile.isFile()) {
+                var bytes = Files.readAllBytes(sizeFile.toPath());
+                if (DigestUtils.sha256Hex(bytes).equals(expectedHash.get())) {
+                    reused.incrementAndGet();
+                    return ImageIO.read(new ByteArrayInputStream(bytes));
+                }
+            }
+
+            var options = new TrainGeneratorOptions()
+                    .setFontFamily(this.fontData.getFontName())
+                    .setMinFontSize(size)
+                    .setMaxFontSize(size);
+
+            this.sizeDirectory.mkdirs();
+            var temp = new File(this.sizeDirectory, "size_" + size + ".tmp.png");
+            new ComputerTrainGenerator(options).generateTrainingImage(temp);
+            Files.move(temp.toPath(), sizeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            var bytes = Files.readAllBytes(sizeFile.toPath());
+            this.manifest.putSize(size, DigestUtils.sha256Hex(bytes));
+            return ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Stacks the images of each size vertically, in order, on a white background
+    private BufferedImage stitch(List<BufferedImage> sizeImages) {
+        var images = new ArrayList<BufferedImage>(sizeImages.size());
+        for (var image : sizeImages) if (image != null) images.add(image);
+
+        var width = images.stream().mapToInt(BufferedImage::getWidth).max().orElse(1);
+        var height = Math.max(1, images.stream().mapToInt(BufferedImage::getHeight).sum());
+
+        var stitched = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = stitched.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+
+        int y = 0;
+        for (var image : images) {
+            graphics.drawImage(image, 0, y, null);
+            y += image.getHeight();
+        }
+
+        graphics.dispose();
+        return stitched;
+    }
+}
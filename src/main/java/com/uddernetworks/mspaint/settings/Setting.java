@@ -20,7 +20,16 @@ public enum Setting {
     HEADLESS_FONT_CONFIG("headlessFontPath","fonts/ComicSans", STRING),
     TRAIN_IMAGE("trainImage", "/train.png", STRING),
     OCR_DEBUG("ocrDebug", false, BOOLEAN),
+    SCAN_CACHE("scanCache", true, BOOLEAN), // Reuses previous scans of identical images
+    OCR_SPLIT_LINES("ocrSplitLines", true, BOOLEAN), // Scans tall images as separate line bands in parallel
+    OCR_SPLIT_MIN_HEIGHT("ocrSplitMinHeight", 1000, INT), // The minimum height in pixels of images to split
+    OCR_AUTO_CROP("ocrAutoCrop", true, BOOLEAN), // Only scans the part of images containing ink, downscaling oversized text
+    OCR_WARMUP("ocrWarmup", true, BOOLEAN), // Exercises the OCR of the active font in the background when it's set
+    OCR_METRICS_LOG_INTERVAL("ocrMetricsLogInterval", 300, INT), // The seconds between logged OCR metric summaries, 0 to disable
+    RASTER_CACHE_SIZE("rasterCacheSize", 256, INT), // The maximum size in megabytes of decoded images kept in memory
     EDIT_FILE_SIZE("editFileFontSize", 48, INT), // The font size that files are generated in
+    PNG_FAST_COMPRESSION("pngFastCompression", 1, INT), // The deflate level from 0 to 9 of intermediate images, which are written without filtering
+    IMAGE_PAGE_HEIGHT("imagePageHeight", 0, INT), // The height in pixels above which saved output images are split into pages, 0 to never split them
     TRAIN_LOWER_BOUND("trainGenLowerBound", 30, INT),
     TRAIN_UPPER_BOUND("trainGenUpperBound", 90, INT),
     TASKBAR_ICON("taskbarIcon", "Colored", STRING),
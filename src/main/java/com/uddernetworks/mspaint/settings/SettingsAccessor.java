@@ -6,18 +6,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 public abstract class SettingsAccessor<G> {
 
     public Map<G, Object> settings = new HashMap<>();
-    protected Map<G, List<Consumer>> onChangeSettings = new HashMap<>();
+    protected Map<G, List<Consumer>> onChangeSettings = new ConcurrentHashMap<>();
 
     public boolean isSet(G setting) {
         return this.settings.containsKey(setting);
@@ -95,11 +96,22 @@ public abstract class SettingsAccessor<G> {
     }
 
     public <T> void onChangeSetting(G setting, Consumer<T> consumer, boolean runInitial) {
-        onChangeSettings.putIfAbsent(setting, new ArrayList<>());
-        onChangeSettings.get(setting).add(consumer);
+        onChangeSettings.computeIfAbsent(setting, key -> new CopyOnWriteArrayList<>()).add(consumer);
         if (runInitial) consumer.accept((T) settings.get(setting));
     }
 
+    /**
+     * Removes a listener added via {@link #onChangeSetting(Object, Consumer, boolean)}, so it's no longer invoked and
+     * whatever it references may be garbage collected.
+     *
+     * @param setting The setting the listener was added to
+     * @param consumer The same listener instance that was added
+     */
+    public <T> void removeOnChangeSetting(G setting, Consumer<T> consumer) {
+        var consumers = onChangeSettings.get(setting);
+        if (consumers != null) consumers.remove(consumer);
+    }
+
     private void checkSetting(G setting) {
         if (optionalRestriction(setting)) throw new RequiresOptionalGetter(setting.toString());
     }
@@ -1,113 +1,200 @@
 package com.uddernetworks.mspaint.texteditor;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.uddernetworks.mspaint.main.ImageUtil;
+import com.uddernetworks.mspaint.main.MainGUI;
 import com.uddernetworks.mspaint.main.StartupLogic;
-import com.uddernetworks.mspaint.ocr.FontData;
-import com.uddernetworks.newocr.detection.SearchImage;
-import com.uddernetworks.newocr.recognition.Actions;
 import com.uddernetworks.newocr.recognition.OCRScan;
-import com.uddernetworks.newocr.utils.IntPair;
-import com.uddernetworks.newocr.utils.OCRUtils;
 import it.unimi.dsi.fastutil.chars.Char2IntMap;
+import it.unimi.dsi.fastutil.chars.Char2IntMaps;
 import it.unimi.dsi.fastutil.chars.Char2IntOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calculates how far below the top of a line each character's ink starts, so generated letters sit on a common
+ * baseline. Offsets are measured from each character's rendered raster in memory, computed once per font and size,
+ * and persisted to the app data directory so they're available straight away on the next start. Saved offsets are
+ * versioned, and discarded if they were measured differently than they are now.
+ */
 public class CenterPopulator {
 
+    private static Logger LOGGER = LoggerFactory.getLogger(CenterPopulator.class);
+
+    private static final Gson GSON = new Gson();
+
+    // Increased whenever the way offsets are measured changes, so offsets saved by an older version are recalculated
+    private static final int FORMAT_VERSION = 2;
+
     private final Char2IntMap def = new Char2IntOpenHashMap();
 
-    private Map<FontData, Int2ObjectMap<Char2IntMap>> centers = new HashMap<>();
+    // Font name -> font size -> offsets, where the offset maps are never modified once added
+    private final Map<String, Map<Integer, Char2IntMap>> centers = new ConcurrentHashMap<>();
 
+    private final File centersFile;
     private StartupLogic startupLogic;
 
     public CenterPopulator(StartupLogic startupLogic) {
+        this(startupLogic, new File(MainGUI.APP_DATA, "ocr" + File.separator + "centers.json"));
+    }
+
+    CenterPopulator(StartupLogic startupLogic, File centersFile) {
         this.startupLogic = startupLogic;
+        this.centersFile = centersFile;
+        load();
     }
 
-    // Code loosely adapted from com.uddernetworks.newocr.OCRHandle.java
-    // TODO: Clean this up a ton :(
+    /**
+     * Calculates the offsets of every character for the active font at the given size, if they haven't been already.
+     *
+     * @param fontSize The font size
+     * @throws IOException If the offsets couldn't be saved
+     */
     public void generateCenters(int fontSize) throws IOException {
-        var activeFont = this.startupLogic.getOCRManager().getActiveFont();
-
-        if (centers.containsKey(activeFont) && centers.get(activeFont).containsKey(fontSize)) return;
-
-        var currentCenters = new Char2IntOpenHashMap();
-        centers.computeIfAbsent(activeFont, x -> new Int2ObjectOpenHashMap<>()).put(fontSize, currentCenters);
-
-        var input = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
-        var graphics = input.createGraphics();
+        var fontName = this.startupLogic.getOCRManager().getActiveFont().getFontName();
+        var fontCenters = this.centers.computeIfAbsent(fontName, x -> new ConcurrentHashMap<>());
+        if (fontCenters.containsKey(fontSize)) return;
+
+        var computed = new boolean[1];
+        fontCenters.computeIfAbsent(fontSize, size -> {
+            computed[0] = true;
+            return computeCenters(fontName, size);
+        });
 
-        graphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON));
+        if (computed[0]) save();
+    }
 
-        var font = new Font(activeFont.getFontName(), Font.PLAIN, fontSize);
-        graphics.setFont(font);
+    /**
+     * Gets the offsets of every character of a font at the given size, if they've been calculated or loaded.
+     *
+     * @param fontName The name of the font
+     * @param fontSize The font size
+     * @return The offsets, or null if they haven't been calculated
+     */
+    Char2IntMap getCenters(String fontName, int fontSize) {
+        var fontCenters = this.centers.get(fontName);
+        return fontCenters == null ? null : fontCenters.get(fontSize);
+    }
 
-        input = new BufferedImage(graphics.getFontMetrics().stringWidth(OCRScan.RAW_STRING) + 50, fontSize * 2, BufferedImage.TYPE_INT_ARGB);
+    private Char2IntMap computeCenters(String fontName, int fontSize) {
+        long start = System.currentTimeMillis();
+        var font = new Font(fontName, Font.PLAIN, fontSize);
 
-        graphics = input.createGraphics();
+        var measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        var fontMetrics = measure.getFontMetrics(font);
+        var maxAdvance = Math.max(1, fontMetrics.getMaxAdvance());
+        measure.dispose();
 
+        // Each character is drawn on its own at the same baseline, so its top is directly comparable to the others
+        var image = new BufferedImage(maxAdvance * 2 + 20, fontSize * 2, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
         graphics.setRenderingHints(new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON));
-
         graphics.setFont(font);
         graphics.setColor(Color.BLACK);
+        graphics.setBackground(Color.WHITE);
 
-        clearImage(input);
-
-        graphics.drawString(OCRScan.RAW_STRING, 10, fontSize);
+        var characters = OCRScan.RAW_STRING.substring(0, Math.max(0, OCRScan.RAW_STRING.indexOf("W W")));
+        var tops = new Char2IntOpenHashMap();
+        var row = new int[image.getWidth()];
+        int lineTop = Integer.MAX_VALUE;
 
-        var centerCalcFile = new File(System.getProperty("java.io.tmpdir"), "center_calc.png");
+        for (char character : characters.toCharArray()) {
+            if (Character.isWhitespace(character) || tops.containsKey(character)) continue;
 
-        ImageIO.write(input, "png", centerCalcFile);
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawString(String.valueOf(character), 10, fontSize);
 
-        // Goes through coordinates of image and adds any connecting pixels to `coordinates`
-        var scanImage = activeFont.getScan().scanImage(centerCalcFile).stripLeadingSpaces();
+            var top = getInkTop(image, row);
+            if (top == -1) continue;
 
-        var currentLetter = new AtomicInteger();
+            tops.put(character, top);
+            lineTop = Math.min(lineTop, top);
+        }
 
-        var lineBound = getLineBounds(input, activeFont.getActions());
+        graphics.dispose();
 
-        scanImage.getGridLineAtIndex(0).get().forEach(imageLetter -> {
-            if (currentLetter.get() == OCRScan.RAW_STRING.indexOf("W W")) return;
-            var letter = OCRScan.RAW_STRING.charAt(currentLetter.getAndIncrement());
-            var topOfLetterToCenter = imageLetter.getY() - lineBound.getKey();
+        var offsets = new Char2IntOpenHashMap(tops.size());
+        for (var entry : tops.char2IntEntrySet()) offsets.put(entry.getCharKey(), entry.getIntValue() - lineTop);
 
-            // Extra space above character to Y
-            currentCenters.put(letter, topOfLetterToCenter);
-        });
+        LOGGER.info("Calculated centers of {} characters for {} at size {} in {}ms", offsets.size(), fontName, fontSize, System.currentTimeMillis() - start);
+        return Char2IntMaps.unmodifiable(offsets);
     }
 
-    private IntPair getLineBounds(BufferedImage input, Actions actions) {
-        OCRUtils.filter(input);
-
-        var values = OCRUtils.createGrid(input);
-
-        OCRUtils.toGrid(input, values);
+    private int getInkTop(BufferedImage image, int[] row) {
+        var width = image.getWidth();
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                var argb = row[x];
+                if ((argb >>> 24) != 0 && ImageUtil.shouldBeBlack((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)) return y;
+            }
+        }
 
-        var searchImage = new SearchImage(values);
-        return actions.getLineBoundsForTraining(searchImage).get(0);
+        return -1;
     }
 
     public int getCenter(char cha, int fontSize) {
-        var activeFont = this.startupLogic.getOCRManager().getActiveFont();
-        if (!centers.containsKey(activeFont)) return 0;
-        return centers.get(activeFont).getOrDefault(fontSize, def).getOrDefault(cha, 0);
+        var offsets = getCenters(this.startupLogic.getOCRManager().getActiveFont().getFontName(), fontSize);
+        return (offsets == null ? def : offsets).getOrDefault(cha, 0);
     }
 
-    private void clearImage(BufferedImage image) {
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                image.setRGB(x, y, Color.WHITE.getRGB());
+    private void load() {
+        if (!this.centersFile.isFile()) return;
+
+        try {
+            var savedCenters = GSON.fromJson(Files.readString(this.centersFile.toPath()), SavedCenters.class);
+            if (savedCenters == null) return;
+
+            if (savedCenters.version != FORMAT_VERSION || savedCenters.centers == null) {
+                LOGGER.info("Discarding centers saved with format version {}, they will be recalculated", savedCenters.version);
+                this.centersFile.delete();
+                return;
             }
+
+            var saved = savedCenters.centers;
+            saved.forEach((fontName, sizes) -> {
+                var fontCenters = this.centers.computeIfAbsent(fontName, x -> new ConcurrentHashMap<>());
+                sizes.forEach((size, offsets) -> fontCenters.put(size, Char2IntMaps.unmodifiable(new Char2IntOpenHashMap(offsets))));
+            });
+
+            LOGGER.info("Loaded centers of {} fonts", saved.size());
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Unable to read the saved centers, they will be recalculated", e);
         }
     }
 
+    private synchronized void save() throws IOException {
+        var saved = new TreeMap<String, Map<Integer, Map<Character, Integer>>>();
+        this.centers.forEach((fontName, sizes) -> {
+            var savedSizes = new TreeMap<Integer, Map<Character, Integer>>();
+            sizes.forEach((size, offsets) -> savedSizes.put(size, new TreeMap<>(offsets)));
+            saved.put(fontName, savedSizes);
+        });
+
+        this.centersFile.getParentFile().mkdirs();
+        var temp = new File(this.centersFile.getParentFile(), this.centersFile.getName() + ".tmp");
+        Files.writeString(temp.toPath(), GSON.toJson(new SavedCenters(FORMAT_VERSION, saved)));
+        Files.move(temp.toPath(), this.centersFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class SavedCenters {
+        private int version;
+        private Map<String, Map<Integer, Map<Character, Integer>>> centers;
+
+        SavedCenters(int version, Map<String, Map<Integer, Map<Character, Integer>>> centers) {
+            this.version = version;
+            this.centers = centers;
+        }
+    }
 }
@@ -0,0 +1,190 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import com.uddernetworks.mspaint.code.ImageClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Saves the text of every open {@link TextEditorManager} session back to its original file as its image is edited.
+ * All sessions share a single watcher thread, and each session's save runs once its image has stopped changing for
+ * {@link #DEBOUNCE_MILLIS}. Saves rescan only the changed lines of the image, and the file is only written when the
+ * text differs from what was last written.
+ */
+public class EditorSaveManager {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(EditorSaveManager.class);
+
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private static EditorSaveManager instance = new EditorSaveManager();
+
+    private final Map<Path, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchedDirectories = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService saveExecutor;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    private EditorSaveManager() {
+        var threadCount = new AtomicInteger();
+        this.saveExecutor = Executors.newScheduledThreadPool(2, runnable -> {
+            var thread = new Thread(runnable, "Editor-Save-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static EditorSaveManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts saving the text of the given image to the original file whenever the image is modified.
+     *
+     * @param imageFile The image being edited
+     * @param originalFile The text file the image was generated from
+     * @param imageClass The {@link ImageClass} of the image, which is reused between saves
+     * @throws IOException If the image's directory couldn't be watched
+     */
+    public synchronized void register(File imageFile, File originalFile, ImageClass imageClass) throws IOException {
+        if (this.watchService == null) {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.watchThread = new Thread(this::watch, "Editor-Save-Watcher");
+            this.watchThread.setDaemon(true);
+            this.watchThread.start();
+        }
+
+        var imagePath = imageFile.toPath().toAbsolutePath();
+        var directory = imagePath.getParent();
+        if (!this.watchedDirectories.containsKey(directory)) {
+            this.watchedDirectories.put(directory, directory.register(this.watchService, StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+
+        var lastWritten = originalFile.isFile() ? stripTrailingWhitespace(Files.readString(originalFile.toPath())) : null;
+        this.sessions.put(imagePath, new Session(imagePath, originalFile, imageClass, lastWritten));
+    }
+
+    /**
+     * Stops watching the given image, first running any save still waiting on the debounce.
+     *
+     * @param imageFile The image being edited
+     */
+    public synchronized void unregister(File imageFile) {
+        var imagePath = imageFile.toPath().toAbsolutePath();
+        var session = this.sessions.remove(imagePath);
+        if (session == null) return;
+
+        if (session.cancelPending()) session.save();
+        LOGGER.info("Closed editor of {} after {} writes, {} unchanged saves skipped, average save {}ms", session.originalFile.getName(),
+                session.writes.get(), session.skipped.get(), session.getAverageSaveMillis());
+
+        var directory = imagePath.getParent();
+        if (this.sessions.keySet().stream().noneMatch(path -> path.getParent().equals(directory))) {
+            var key = this.watchedDirectories.remove(directory);
+            if (key != null) key.cancel();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = this.watchService.take();
+                var directory = (Path) key.watchable();
+
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) continue;
+
+                    var session = this.sessions.get(directory.resolve((Path) event.context()).toAbsolutePath());
+                    if (session != null) session.schedule();
+                }
+
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    // Trailing whitespace can't be drawn in the image, so it's never counted as a change to the text
+    private static String stripTrailingWhitespace(String text) {
+        return text.lines().map(String::stripTrailing).collect(Collectors.joining("\n")).stripTrailing();
+    }
+
+    private class Session {
+        private final Path imagePath;
+        private final File originalFile;
+        private final ImageClass imageClass;
+        private final AtomicReference<ScheduledFuture<?>> pending = new AtomicReference<>();
+        private String lastWritten;
+
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private long totalSaveNanos;
+        private int saves;
+
+        Session(Path imagePath, File originalFile, ImageClass imageClass, String lastWritten) {
+            this.imagePath = imagePath;
+            this.originalFile = originalFile;
+            this.imageClass = imageClass;
+            this.lastWritten = lastWritten;
+        }
+
+        // Restarts the debounce, so a burst of modifications results in a single save. This never waits on a running
+        // save, so the watcher thread shared by every session is never held up by a scan
+        void schedule() {
+            var previous = this.pending.getAndSet(saveExecutor.schedule(this::save, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS));
+            if (previous != null) previous.cancel(false);
+        }
+
+        boolean cancelPending() {
+            var previous = this.pending.getAndSet(null);
+            return previous != null && previous.cancel(false);
+        }
+
+        synchronized void save() {
+            long start = System.nanoTime();
+
+            try {
+                this.imageClass.scan();
+                var text = this.imageClass.getTrimmedText();
+                var stripped = text == null ? null : stripTrailingWhitespace(text);
+                if (stripped == null || stripped.equals(this.lastWritten)) {
+                    this.skipped.incrementAndGet();
+                    return;
+                }
+
+                Files.writeString(this.originalFile.toPath(), text);
+                this.lastWritten = stripped;
+                this.writes.incrementAndGet();
+            } catch (Exception e) {
+                LOGGER.error("Error while saving " + this.imagePath + " to " + this.originalFile.getName(), e);
+            } finally {
+                var nanos = System.nanoTime() - start;
+                this.totalSaveNanos += nanos;
+                this.saves++;
+                LOGGER.info("Saved {} in {}ms ({} writes, {} unchanged)", this.originalFile.getName(), String.format("%.1f", nanos / 1_000_000D),
+                        this.writes.get(), this.skipped.get());
+            }
+        }
+
+        synchronized double getAverageSaveMillis() {
+            return this.saves == 0 ? 0 : this.totalSaveNanos / (double) this.saves / 1_000_000D;
+        }
+    }
+}
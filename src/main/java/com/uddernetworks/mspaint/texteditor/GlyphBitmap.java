@@ -0,0 +1,237 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The pixels of a single letter, stored as one flat row-major array of ARGB values. White pixels are treated as
+ * background, and pixels of 0 are never drawn. Bitmaps are immutable, so a single bitmap may be shared between any
+ * amount of letters.
+ */
+public class GlyphBitmap {
+
+    public static final int WHITE = Color.WHITE.getRGB();
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private final boolean opaque;
+
+    private GlyphBitmap(int width, int height, int[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+
+        var opaque = true;
+        for (int i = 0; i < pixels.length && opaque; i++) opaque = pixels[i] != 0;
+        this.opaque = opaque;
+    }
+
+    /**
+     * Creates a bitmap of a single colour.
+     *
+     * @param width The width
+     * @param height The height
+     * @param argb The colour of every pixel
+     * @return The {@link GlyphBitmap}
+     */
+    public static GlyphBitmap filled(int width, int height, int argb) {
+        var pixels = new int[width * height];
+        Arrays.fill(pixels, argb);
+        return new GlyphBitmap(width, height, pixels);
+    }
+
+    /**
+     * Copies the pixels of an image into a bitmap.
+     *
+     * @param image The image
+     * @return The {@link GlyphBitmap}
+     */
+    public static GlyphBitmap of(BufferedImage image) {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        return new GlyphBitmap(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    /**
+     * Creates a bitmap from binary letter values, such as those of a scanned
+     * {@link com.uddernetworks.newocr.character.ImageLetter}.
+     *
+     * @param values The values, indexed by [y][x]
+     * @param argb The colour of set values, with unset values being white
+     * @return The {@link GlyphBitmap}
+     */
+    public static GlyphBitmap fromMask(boolean[][] values, int argb) {
+        var height = values.length;
+        var width = height == 0 ? 0 : values[0].length;
+        var pixels = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            var row = values[y];
+            var offset = y * width;
+            for (int x = 0; x < width; x++) pixels[offset + x] = row[x] ? argb : WHITE;
+        }
+
+        return new GlyphBitmap(width, height, pixels);
+    }
+
+    /**
+     * Crops the bitmap to the bounds of its non-white pixels.
+     *
+     * @return The trimmed {@link GlyphBitmap}, or this bitmap if it's entirely white
+     */
+    public GlyphBitmap trim() {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+
+        for (int y = 0; y < this.height; y++) {
+            var offset = y * this.width;
+            for (int x = 0; x < this.width; x++) {
+                if (this.pixels[offset + x] == WHITE) continue;
+                minX = Math.min(x, minX);
+                maxX = Math.max(x, maxX);
+                minY = Math.min(y, minY);
+                maxY = y;
+            }
+        }
+
+        if (maxX == Integer.MIN_VALUE) return this;
+        if (minX == 0 && minY == 0 && maxX == this.width - 1 && maxY == this.height - 1) return this;
+
+        var width = maxX - minX + 1;
+        var height = maxY - minY + 1;
+        var trimmed = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(this.pixels, (minY + y) * this.width + minX, trimmed, y * width, width);
+        }
+
+        return new GlyphBitmap(width, height, trimmed);
+    }
+
+    /**
+     * Recolours the bitmap by blending from the given colour for black pixels to white for white pixels, by the
+     * brightness of each pixel.
+     *
+     * @param color The colour to use for the darkest pixels
+     * @return The recoloured {@link GlyphBitmap}
+     */
+    public GlyphBitmap recolor(Color color) {
+        int red = color.getRed();
+        int green = color.getGreen();
+        int blue = color.getBlue();
+
+        var recolored = new int[this.pixels.length];
+        for (int i = 0; i < recolored.length; i++) {
+            var argb = this.pixels[i];
+            if (argb == WHITE) {
+                recolored[i] = WHITE;
+                continue;
+            }
+
+            var gray = (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+            recolored[i] = 0xFF000000
+                    | blend(red, gray) << 16
+                    | blend(green, gray) << 8
+                    | blend(blue, gray);
+        }
+
+        return new GlyphBitmap(this.width, this.height, recolored);
+    }
+
+    private static int blend(int channel, int gray) {
+        return (channel * (256 - gray) + 255 * gray) >> 8;
+    }
+
+    /**
+     * Draws every non-zero pixel of the bitmap onto an image.
+     *
+     * @param target The image to draw on
+     * @param x The X position of the bitmap on the image
+     * @param y The Y position of the bitmap on the image
+     */
+    public void blit(BufferedImage target, int x, int y) {
+        for (int row = 0; row < this.height; row++) {
+            var offset = row * this.width;
+            for (int column = 0; column < this.width; column++) {
+                var argb = this.pixels[offset + column];
+                if (argb != 0) target.setRGB(x + column, y + row, argb);
+            }
+        }
+    }
+
+    /**
+     * Draws every non-zero pixel of the bitmap directly into the backing array of an image, clipped to its bounds.
+     * Bitmaps without any zero pixels are copied a whole row at a time.
+     *
+     * @param target The row-major ARGB pixels of the image, such as from a {@link java.awt.image.DataBufferInt}
+     * @param targetWidth The width of the image
+     * @param targetHeight The height of the image
+     * @param x The X position of the bitmap on the image
+     * @param y The Y position of the bitmap on the image
+     */
+    public void blit(int[] target, int targetWidth, int targetHeight, int x, int y) {
+        var fromColumn = Math.max(0, -x);
+        var toColumn = Math.min(this.width, targetWidth - x);
+        var fromRow = Math.max(0, -y);
+        var toRow = Math.min(this.height, targetHeight - y);
+        if (fromColumn >= toColumn || fromRow >= toRow) return;
+
+        var length = toColumn - fromColumn;
+        for (int row = fromRow; row < toRow; row++) {
+            var sourceOffset = row * this.width + fromColumn;
+            var targetOffset = (y + row) * targetWidth + x + fromColumn;
+
+            if (this.opaque) {
+                System.arraycopy(this.pixels, sourceOffset, target, targetOffset, length);
+                continue;
+            }
+
+            for (int i = 0; i < length; i++) {
+                var argb = this.pixels[sourceOffset + i];
+                if (argb != 0) target[targetOffset + i] = argb;
+            }
+        }
+    }
+
+    /**
+     * Gets which pixels of the bitmap aren't white, as the values of an
+     * {@link com.uddernetworks.newocr.character.ImageLetter}. A new mask is created on every call, as letters may
+     * modify their values while the bitmap itself is shared.
+     *
+     * @return The mask, indexed by [y][x]
+     */
+    public boolean[][] getMask() {
+        var mask = new boolean[this.height][this.width];
+        for (int y = 0; y < this.height; y++) {
+            var row = mask[y];
+            var offset = y * this.width;
+            for (int x = 0; x < this.width; x++) row[x] = this.pixels[offset + x] != WHITE;
+        }
+
+        return mask;
+    }
+
+    public int getRGB(int x, int y) {
+        return this.pixels[y * this.width + x];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Estimates the amount of heap the bitmap takes up.
+     *
+     * @return The estimated amount of bytes
+     */
+    public long getEstimatedBytes() {
+        return 16L + (long) this.pixels.length * Integer.BYTES;
+    }
+}
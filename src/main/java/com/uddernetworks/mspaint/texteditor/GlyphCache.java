@@ -0,0 +1,88 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A shared cache of the trimmed glyphs rendered by {@link LetterGenerator}, keyed by the font, size and character, so
+ * each distinct character is only drawn once no matter how many times it appears in generated text. Spaces are cached
+ * by their font and size alone. As {@link GlyphBitmap}s are immutable, cached glyphs are shared between every letter
+ * using them.
+ */
+public class GlyphCache {
+
+    private static GlyphCache instance = new GlyphCache();
+
+    private final Map<Key, GlyphBitmap> glyphs = new ConcurrentHashMap<>();
+    private final Map<Key, GlyphBitmap> spaces = new ConcurrentHashMap<>();
+
+    public static GlyphCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the cached glyph of a character, rendering it if it hasn't been yet.
+     *
+     * @param fontName The name of the font
+     * @param size The font size
+     * @param character The character
+     * @param render Renders the trimmed glyph
+     * @return The {@link GlyphBitmap}
+     */
+    public GlyphBitmap getGlyph(String fontName, int size, char character, Supplier<GlyphBitmap> render) {
+        return this.glyphs.computeIfAbsent(new Key(fontName, size, character), key -> render.get());
+    }
+
+    /**
+     * Gets the cached blank glyph of a space, creating it if it hasn't been yet or if the width of spaces in the font
+     * has changed, such as after retraining.
+     *
+     * @param fontName The name of the font
+     * @param size The font size
+     * @param width The width of a space
+     * @return The white {@link GlyphBitmap}
+     */
+    public GlyphBitmap getSpace(String fontName, int size, int width) {
+        return this.spaces.compute(new Key(fontName, size, ' '), (key, cached) ->
+                cached != null && cached.getWidth() == width ? cached : GlyphBitmap.filled(width, size, GlyphBitmap.WHITE));
+    }
+
+    /**
+     * Removes every cached glyph.
+     */
+    public void clear() {
+        this.glyphs.clear();
+        this.spaces.clear();
+    }
+
+    public int size() {
+        return this.glyphs.size();
+    }
+
+    private static class Key {
+        private final String fontName;
+        private final int size;
+        private final char character;
+
+        Key(String fontName, int size, char character) {
+            this.fontName = fontName;
+            this.size = size;
+            this.character = character;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return size == key.size && character == key.character && fontName.equals(key.fontName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fontName, size, character);
+        }
+    }
+}
@@ -1,37 +1,23 @@
 package com.uddernetworks.mspaint.texteditor;
 
 import com.uddernetworks.mspaint.code.ImageClass;
-import com.uddernetworks.mspaint.main.LetterFileWriter;
 import com.uddernetworks.mspaint.main.MainGUI;
+import com.uddernetworks.mspaint.main.PNGWriter;
 import com.uddernetworks.mspaint.main.StartupLogic;
 import com.uddernetworks.mspaint.painthook.PaintInjector;
 import com.uddernetworks.mspaint.settings.Setting;
 import com.uddernetworks.mspaint.settings.SettingsManager;
-import com.uddernetworks.newocr.character.ImageLetter;
-import com.uddernetworks.newocr.recognition.DefaultScannedImage;
-import com.uddernetworks.newocr.recognition.ScannedImage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class TextEditorManager {
 
@@ -41,8 +27,6 @@ public class TextEditorManager {
     private File imageFile;
     private ImageClass imageClass;
     private StartupLogic startupLogic;
-    private Thread savingThread;
-    private final AtomicBoolean stopping = new AtomicBoolean(false);
 
     // Doesn't actually manage text files, used for generation
     public TextEditorManager(StartupLogic startupLogic) {
@@ -75,36 +59,7 @@ public class TextEditorManager {
 
         this.imageClass = new ImageClass(this.imageFile, mainGUI, this.startupLogic);
 
-        // Could be replaced with FileWatcher, but realistically isn't requiring high-performance, and requires this
-        // kind of thread joining and stuff (And I'm lazy lol, if anyone reads this make an issue immediately)
-        (this.savingThread = new Thread(() -> {
-            try {
-                Path path = FileSystems.getDefault().getPath(this.imageFile.getParent());
-                try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-                    path.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
-
-                    long last = System.currentTimeMillis();
-                    while (!stopping.get()) {
-                        WatchKey wk = watchService.take();
-                        boolean found = false;
-                        for (WatchEvent<?> event : wk.pollEvents()) {
-                            Path changed = ((Path) event.context()).toAbsolutePath();
-                            if (changed.toFile().getName().equals(this.imageFile.getName())) found = true;
-                        }
-
-                        if (found && (System.currentTimeMillis() - last) > 250) {
-                            this.imageClass.scan();
-                            Files.write(this.originalFile.toPath(), this.imageClass.getTrimmedText().getBytes());
-                            last = System.currentTimeMillis();
-                        }
-
-                        if (!wk.reset()) {
-                            LOGGER.info("Key has been unregistered");
-                        }
-                    }
-                }
-            } catch (IOException | InterruptedException ignored) {}
-        })).start();
+        EditorSaveManager.getInstance().register(this.imageFile, this.originalFile, this.imageClass);
 
         initialProcess(bindButtons);
         if (!MainGUI.HEADLESS) mainGUI.setIndeterminate(false);
@@ -124,65 +79,6 @@ public class TextEditorManager {
         });
     }
 
-    public static ScannedImage generateLetterGrid(StartupLogic startupLogic, File originalFile, String text) throws ExecutionException, InterruptedException {
-        var ocrManager = startupLogic.getOCRManager();
-        var scannedImage = new DefaultScannedImage(originalFile, null, null);
-        var letterGenerator = new LetterGenerator();
-
-        int size = SettingsManager.getInstance().getSetting(Setting.EDIT_FILE_SIZE);
-
-        var data = startupLogic.getOCRManager().getActiveFont().getDatabaseManager().getAllCharacterSegments().get();
-
-        // Gets the space DatabaseCharacter used for the current font size from the database
-        var spaceOptional = data.stream().filter(databaseCharacter -> databaseCharacter.getLetter() == ' ').findFirst();
-
-        if (spaceOptional.isEmpty()) {
-            LOGGER.error("Couldn't find space for size: " + size);
-            return null;
-        }
-
-        var space = spaceOptional.get();
-
-        double spaceRatio = space.getAvgWidth() / space.getAvgHeight();
-        int characterBetweenSpace = (int) ((spaceRatio * size) / 3D);
-
-        var centerPopulator = startupLogic.getCenterPopulator();
-        try {
-            centerPopulator.generateCenters(size);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        int x = 0;
-        int y = 0;
-        for (String textLine : text.split("\n")) {
-            List<ImageLetter> line = new ArrayList<>();
-            for (char cha : textLine.toCharArray()) {
-                if (cha == ' ') {
-                    x += Math.floor(spaceRatio * size) - characterBetweenSpace;
-                    continue;
-                }
-
-                var letterGrid = letterGenerator.generateCharacter(cha, size, ocrManager.getActiveFont(), space);
-                int center = centerPopulator.getCenter(cha, size);
-
-                ImageLetter letter = new ImageLetter(cha, 0, x, y + center, letterGrid[0].length, letterGrid.length, 0D, 0D, 0D);
-                letter.setValues(LetterGenerator.doubleToBooleanGrid(letterGrid));
-                letter.setData(letterGrid);
-                line.add(letter);
-
-                x += letterGrid[0].length + characterBetweenSpace;
-            }
-
-            scannedImage.addLine(y, line);
-
-            y += size + ((int) (size * 0.5D));
-            x = 0;
-        }
-
-        return scannedImage;
-    }
-
     private File createImageFile() throws IOException, ExecutionException, InterruptedException {
         File tempImage = new File(MainGUI.APP_DATA, "opened\\" + this.originalFile.getName() + ".png");
         tempImage.mkdirs();
@@ -199,16 +95,10 @@ public class TextEditorManager {
             }
         }
 
-        ImageIO.write(image, "png", tempImage);
-
-        ScannedImage letterGrid = generateLetterGrid(startupLogic, originalFile, text);
-        int[] coords = getBiggestCoordinates(letterGrid);
-        applyPadding(letterGrid, padding, padding);
-
-        BufferedImage bufferedImage = new BufferedImage(coords[0] + padding * 2, coords[1] + padding * 2, BufferedImage.TYPE_INT_ARGB);
+        PNGWriter.getInstance().write(image, tempImage, PNGWriter.Profile.FAST);
 
-        LetterFileWriter letterFileWriter = new LetterFileWriter(letterGrid, bufferedImage, tempImage);
-        letterFileWriter.writeToFile();
+        // Paint only opens a single file, so the image being edited is never split into pages
+        new TextRenderer(this.startupLogic).renderTo(tempImage, text, padding, 0);
 
         return tempImage;
     }
@@ -219,9 +109,7 @@ public class TextEditorManager {
         this.startupLogic.getMainGUI().setIndeterminate(false);
         openPaint(this.imageFile, bindButtons);
 
-        stopping.set(true);
-        savingThread.interrupt();
-        savingThread.join();
+        EditorSaveManager.getInstance().unregister(this.imageFile);
 
         if (!this.imageFile.delete()) {
             Thread.sleep(3000);
@@ -249,29 +137,4 @@ public class TextEditorManager {
 
         LOGGER.info("Closed MS Paint!");
     }
-
-    // Utility methods
-
-    public static int[] getBiggestCoordinates(ScannedImage scannedImage) {
-        AtomicInteger xCoord = new AtomicInteger();
-        AtomicInteger yCoord = new AtomicInteger();
-
-        scannedImage.getGrid().values().forEach(line -> {
-            for (ImageLetter imageLetter : line) {
-                xCoord.set(Math.max(imageLetter.getX() + imageLetter.getWidth(), xCoord.get()));
-                yCoord.set(Math.max(imageLetter.getY() + imageLetter.getHeight(), yCoord.get()));
-            }
-        });
-
-        return new int[]{xCoord.get(), yCoord.get()};
-    }
-
-    public static void applyPadding(ScannedImage scannedImage, int xAmount, int yAmount) {
-        scannedImage.getGrid().values().forEach(line -> {
-            for (ImageLetter imageLetter : line) {
-                imageLetter.setX(imageLetter.getX() + xAmount);
-                imageLetter.setY(imageLetter.getY() + yAmount);
-            }
-        });
-    }
 }
@@ -0,0 +1,224 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import com.uddernetworks.mspaint.main.PagedImage;
+import com.uddernetworks.mspaint.main.StartupLogic;
+import com.uddernetworks.mspaint.ocr.FontData;
+import com.uddernetworks.mspaint.ocr.SpaceMetrics;
+import com.uddernetworks.mspaint.settings.Setting;
+import com.uddernetworks.mspaint.settings.SettingsManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Renders text straight into an image in the active font, for opening text files in the editor. As the position of
+ * every line is known from the font size alone, groups of lines are laid out and drawn in parallel, and glyphs are
+ * copied directly into the output raster without creating an {@link com.uddernetworks.newocr.character.ImageLetter}
+ * or grid per letter, so memory use doesn't grow with the length of the text beyond the image itself.
+ */
+public class TextRenderer {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(TextRenderer.class);
+
+    private static final int LINES_PER_TASK = 64;
+
+    // Generators only keep a reusable canvas, so the pool threads rendering lines share one each between renders
+    private static final ThreadLocal<LetterGenerator> LETTER_GENERATOR = ThreadLocal.withInitial(LetterGenerator::new);
+
+    private final StartupLogic startupLogic;
+
+    public TextRenderer(StartupLogic startupLogic) {
+        this.startupLogic = startupLogic;
+    }
+
+    /**
+     * Renders the given text at {@link Setting#EDIT_FILE_SIZE}.
+     *
+     * @param text The text to render
+     * @param padding The whitespace around the text, in pixels
+     * @return The rendered image, or null if the font's space hasn't been trained
+     * @throws ExecutionException If the font's characters couldn't be fetched
+     * @throws InterruptedException If interrupted while rendering
+     */
+    public BufferedImage render(String text, int padding) throws ExecutionException, InterruptedException {
+        long start = System.currentTimeMillis();
+        var measured = measure(text, padding);
+        if (measured == null) return null;
+
+        var image = new BufferedImage(measured.width, measured.height, BufferedImage.TYPE_INT_ARGB);
+        draw(measured, image, 0);
+
+        LOGGER.info("Rendered {} lines into a {}x{} image in {}ms", measured.lines.length, measured.width, measured.height, System.currentTimeMillis() - start);
+        return image;
+    }
+
+    /**
+     * Renders the given text at {@link Setting#EDIT_FILE_SIZE} to a PNG, split into pages of the given height by
+     * {@link PagedImage} if it's taller. Only a single page is held in memory at a time.
+     *
+     * @param file The image file to write
+     * @param text The text to render
+     * @param padding The whitespace around the text, in pixels
+     * @param pageHeight The maximum height of a page, or 0 to always write a single image
+     * @return If the text was rendered, which is false if the font's space hasn't been trained
+     * @throws IOException If the image couldn't be written
+     * @throws ExecutionException If the font's characters couldn't be fetched
+     * @throws InterruptedException If interrupted while rendering
+     */
+    public boolean renderTo(File file, String text, int padding, int pageHeight) throws IOException, ExecutionException, InterruptedException {
+        long start = System.currentTimeMillis();
+        var measured = measure(text, padding);
+        if (measured == null) return false;
+
+        PagedImage.write(file, measured.width, measured.height, pageHeight, (page, top) -> {
+            try {
+                draw(measured, page, top);
+            } catch (ExecutionException e) {
+                throw new IOException("Unable to render the rows from " + top + " of " + file.getName(), e.getCause());
+            }
+        });
+
+        LOGGER.info("Rendered {} lines into a {}x{} image in {}ms", measured.lines.length, measured.width, measured.height, System.currentTimeMillis() - start);
+        return true;
+    }
+
+    // Lays out every line to find the size of the image, as it's needed before anything can be drawn
+    private Measured measure(String text, int padding) throws ExecutionException, InterruptedException {
+        var fontData = this.startupLogic.getOCRManager().getActiveFont();
+        int size = SettingsManager.getInstance().getSetting(Setting.EDIT_FILE_SIZE);
+
+        var spaceOptional = fontData.getSpaceMetrics();
+        if (spaceOptional.isEmpty()) {
+            LOGGER.error("Couldn't find space for size: " + size);
+            return null;
+        }
+
+        var centerPopulator = this.startupLogic.getCenterPopulator();
+        try {
+            centerPopulator.generateCenters(size);
+        } catch (IOException e) {
+            LOGGER.error("Unable to save the character centers", e);
+        }
+
+        var lines = text.split("\n");
+        var layout = new Layout(fontData, size, spaceOptional.get(), centerPopulator);
+
+        var rights = new int[lines.length];
+        var bottoms = new int[lines.length];
+        forEachLine(0, lines.length, i -> layout.place(lines[i], i, (glyph, x, y) -> {
+            rights[i] = Math.max(rights[i], x + glyph.getWidth());
+            bottoms[i] = Math.max(bottoms[i], y + glyph.getHeight());
+        }));
+
+        var width = Math.max(1, Arrays.stream(rights).max().orElse(0) + padding * 2);
+        var height = Math.max(1, Arrays.stream(bottoms).max().orElse(0) + padding * 2);
+        return new Measured(lines, layout, bottoms, padding, width, height);
+    }
+
+    // Draws the rows of the text starting at the given row onto the image, which may be a single page of it
+    private void draw(Measured measured, BufferedImage image, int top) throws ExecutionException, InterruptedException {
+        var width = image.getWidth();
+        var height = image.getHeight();
+        var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, GlyphBitmap.WHITE);
+
+        // Glyphs never start above their line, so only lines from the first ending below the top can be visible
+        var lineHeight = measured.layout.lineHeight;
+        var padding = measured.padding;
+        int from = 0;
+        while (from < measured.lines.length && measured.bottoms[from] + padding <= top) from++;
+        int to = Math.min(measured.lines.length, Math.max(from, (top + height - padding) / lineHeight + 1));
+
+        forEachLine(from, to, i -> measured.layout.place(measured.lines[i], i, (glyph, x, y) -> glyph.blit(pixels, width, height, x + padding, y + padding - top)));
+    }
+
+    // Runs the action for every line index in the range, in groups of lines on the scan executor
+    private void forEachLine(int fromLine, int toLine, IntConsumer action) throws ExecutionException, InterruptedException {
+        if (toLine - fromLine <= LINES_PER_TASK) {
+            for (int i = fromLine; i < toLine; i++) action.accept(i);
+            return;
+        }
+
+        var scanExecutor = this.startupLogic.getOCRManager().getScanExecutor();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int from = fromLine; from < toLine; from += LINES_PER_TASK) {
+            int taskFrom = from;
+            int taskTo = Math.min(toLine, from + LINES_PER_TASK);
+            futures.add(scanExecutor.supply(() -> {
+                for (int i = taskFrom; i < taskTo; i++) action.accept(i);
+                return null;
+            }));
+        }
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+    }
+
+    private static class Measured {
+        private final String[] lines;
+        private final Layout layout;
+        private final int[] bottoms;
+        private final int padding;
+        private final int width;
+        private final int height;
+
+        Measured(String[] lines, Layout layout, int[] bottoms, int padding, int width, int height) {
+            this.lines = lines;
+            this.layout = layout;
+            this.bottoms = bottoms;
+            this.padding = padding;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private interface GlyphPlacement {
+        void place(GlyphBitmap glyph, int x, int y);
+    }
+
+    private static class Layout {
+        private final FontData fontData;
+        private final int size;
+        private final SpaceMetrics space;
+        private final CenterPopulator centerPopulator;
+        private final int characterBetweenSpace;
+        private final int spaceWidth;
+        private final int lineHeight;
+
+        Layout(FontData fontData, int size, SpaceMetrics space, CenterPopulator centerPopulator) {
+            this.fontData = fontData;
+            this.size = size;
+            this.space = space;
+            this.centerPopulator = centerPopulator;
+            this.characterBetweenSpace = space.getCharacterSpacing(size);
+            this.spaceWidth = (int) Math.floor(space.getRatio() * size) - this.characterBetweenSpace;
+            this.lineHeight = size + ((int) (size * 0.5D));
+        }
+
+        // Places every glyph of a line, with spaces advancing by the trained space width
+        void place(String line, int lineIndex, GlyphPlacement placement) {
+            var generator = LETTER_GENERATOR.get();
+            int x = 0;
+            int y = lineIndex * this.lineHeight;
+            for (int i = 0; i < line.length(); i++) {
+                var cha = line.charAt(i);
+                if (cha == ' ') {
+                    x += this.spaceWidth;
+                    continue;
+                }
+
+                var glyph = generator.getGlyph(cha, this.size, this.fontData, this.space);
+                placement.place(glyph, x, y + this.centerPopulator.getCenter(cha, this.size));
+                x += glyph.getWidth() + this.characterBetweenSpace;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.uddernetworks.mspaint.main;
+
+import com.uddernetworks.mspaint.settings.TestSettings;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PNGWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void initializeSettings() throws IOException {
+        TestSettings.initialize();
+    }
+
+    @Test
+    public void fastProfileRoundTripsARGB() throws IOException {
+        var image = randomImage(37, 23, BufferedImage.TYPE_INT_ARGB);
+        assertSamePixels(image, writeAndRead(image), true);
+    }
+
+    @Test
+    public void fastProfileRoundTripsRGB() throws IOException {
+        var image = randomImage(40, 17, BufferedImage.TYPE_INT_RGB);
+        assertSamePixels(image, writeAndRead(image), false);
+    }
+
+    @Test
+    public void fastProfileRoundTripsSubimages() throws IOException {
+        var image = randomImage(50, 50, BufferedImage.TYPE_INT_ARGB).getSubimage(7, 11, 20, 30);
+        assertSamePixels(image, writeAndRead(image), true);
+    }
+
+    @Test
+    public void fastProfileRoundTripsOtherImageTypes() throws IOException {
+        var image = randomImage(19, 13, BufferedImage.TYPE_3BYTE_BGR);
+        assertSamePixels(image, writeAndRead(image), false);
+    }
+
+    @Test
+    public void fastProfileRoundTripsMultipleChunks() throws IOException {
+        // Random pixels barely compress, so this spans several IDAT chunks
+        var image = randomImage(300, 300, BufferedImage.TYPE_INT_ARGB);
+        assertSamePixels(image, writeAndRead(image), true);
+    }
+
+    private BufferedImage writeAndRead(BufferedImage image) throws IOException {
+        var file = new File(this.folder.getRoot(), "image.png");
+        PNGWriter.getInstance().write(image, file, PNGWriter.Profile.FAST);
+        return ImageIO.read(file);
+    }
+
+    private static BufferedImage randomImage(int width, int height, int type) {
+        var random = new Random(width * 31 + height);
+        var image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) image.setRGB(x, y, random.nextInt());
+        }
+
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual, boolean alpha) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+
+        var mask = alpha ? 0xFFFFFFFF : 0x00FFFFFF;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("Pixel " + x + ", " + y, expected.getRGB(x, y) & mask, actual.getRGB(x, y) & mask);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.uddernetworks.mspaint.main;
+
+import com.uddernetworks.mspaint.settings.TestSettings;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagedImageTest {
+
+    private static final int WIDTH = 13;
+    private static final int HEIGHT = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void initializeSettings() throws IOException {
+        TestSettings.initialize();
+    }
+
+    @Test
+    public void splitsAndStitchesPages() throws IOException, InterruptedException {
+        var image = new File(this.folder.getRoot(), "paged.png");
+        PagedImage.write(image, WIDTH, HEIGHT, 16, PagedImageTest::renderGradient);
+
+        assertTrue(PagedImage.isPaged(image));
+
+        var pages = PagedImage.getPageFiles(image);
+        assertEquals(4, pages.size());
+        assertEquals(image, pages.get(0));
+        assertEquals(16, ImageIO.read(pages.get(0)).getHeight());
+        assertEquals(2, ImageIO.read(pages.get(3)).getHeight());
+
+        assertGradient(PagedImage.read(image));
+    }
+
+    @Test
+    public void writesShortImagesWhole() throws IOException, InterruptedException {
+        var image = new File(this.folder.getRoot(), "whole.png");
+        PagedImage.write(image, WIDTH, HEIGHT, 0, PagedImageTest::renderGradient);
+
+        assertFalse(PagedImage.isPaged(image));
+        assertEquals(1, PagedImage.getPageFiles(image).size());
+        assertGradient(PagedImage.read(image));
+    }
+
+    @Test
+    public void rewritingRemovesOldPages() throws IOException, InterruptedException {
+        var image = new File(this.folder.getRoot(), "rewritten.png");
+        PagedImage.write(image, WIDTH, HEIGHT, 10, PagedImageTest::renderGradient);
+        var lastPage = PagedImage.getPageFiles(image).get(4);
+
+        PagedImage.write(image, WIDTH, HEIGHT, 0, PagedImageTest::renderGradient);
+
+        assertFalse(PagedImage.isPaged(image));
+        assertFalse(lastPage.exists());
+        assertGradient(PagedImage.read(image));
+    }
+
+    @Test
+    public void readsBytesOfEveryPage() throws IOException, InterruptedException {
+        var image = new File(this.folder.getRoot(), "bytes.png");
+        PagedImage.write(image, WIDTH, HEIGHT, 20, PagedImageTest::renderGradient);
+
+        long expected = 0;
+        for (var page : PagedImage.getPageFiles(image)) expected += page.length();
+        assertEquals(expected, PagedImage.readBytes(image).length);
+    }
+
+    @Test
+    public void deletesPages() throws IOException, InterruptedException {
+        var image = new File(this.folder.getRoot(), "deleted.png");
+        PagedImage.write(image, WIDTH, HEIGHT, 20, PagedImageTest::renderGradient);
+        var pages = PagedImage.getPageFiles(image);
+
+        assertTrue(PagedImage.delete(image));
+        for (var page : pages) assertFalse(page.exists());
+        assertFalse(PagedImage.isPaged(image));
+    }
+
+    // Every row gets its own colour, so misplaced pages are caught
+    private static void renderGradient(BufferedImage page, int top) {
+        for (int y = 0; y < page.getHeight(); y++) {
+            for (int x = 0; x < page.getWidth(); x++) page.setRGB(x, y, getColor(x, top + y));
+        }
+    }
+
+    private static int getColor(int x, int y) {
+        return 0xFF000000 | (y * 5) << 8 | x * 10;
+    }
+
+    private static void assertGradient(BufferedImage image) {
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) assertEquals("Pixel " + x + ", " + y, getColor(x, y), image.getRGB(x, y));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.uddernetworks.mspaint.ocr;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BandScannerTest {
+
+    @Test
+    public void blankImageIsOneBand() {
+        var bands = BandScanner.getWhitespaceBands(whiteImage(20, 40));
+        assertBands(bands, 0, 40);
+    }
+
+    @Test
+    public void splitsHalfwayBetweenLines() {
+        var image = whiteImage(20, 70);
+        fillRows(image, 5, 15);
+        fillRows(image, 30, 40);
+        fillRows(image, 55, 62);
+
+        assertBands(BandScanner.getWhitespaceBands(image), 0, 22, 47, 70);
+    }
+
+    @Test
+    public void keepsSmallGapsWithinLines() {
+        var image = whiteImage(20, 70);
+        fillRows(image, 5, 15);
+        fillRows(image, 30, 40);
+
+        // Like an '=', two bars with a gap far shorter than the lines around them
+        fillRows(image, 55, 57);
+        fillRows(image, 59, 61);
+
+        assertBands(BandScanner.getWhitespaceBands(image), 0, 22, 47, 70);
+    }
+
+    @Test
+    public void ignoresTransparentAndLightPixels() {
+        var image = new BufferedImage(20, 40, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(new Color(245, 245, 245));
+        graphics.fillRect(0, 10, 20, 5);
+        graphics.dispose();
+
+        assertBands(BandScanner.getWhitespaceBands(image), 0, 40);
+    }
+
+    private static BufferedImage whiteImage(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    // Draws ink in the rows from the top inclusive to the bottom exclusive
+    private static void fillRows(BufferedImage image, int top, int bottom) {
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(2, top, image.getWidth() - 4, bottom - top);
+        graphics.dispose();
+    }
+
+    private static void assertBands(List<LineBand> bands, int... boundaries) {
+        assertEquals("Bands " + bands, boundaries.length - 1, bands.size());
+        for (int i = 0; i < bands.size(); i++) {
+            assertEquals("Top of band " + i, boundaries[i], bands.get(i).getTop());
+            assertEquals("Bottom of band " + i, boundaries[i + 1], bands.get(i).getBottom());
+        }
+    }
+}
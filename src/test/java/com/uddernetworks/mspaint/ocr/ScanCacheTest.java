@@ -0,0 +1,142 @@
+package com.uddernetworks.mspaint.ocr;
+
+import com.uddernetworks.mspaint.settings.TestSettings;
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.DefaultScannedImage;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanCacheTest {
+
+    private static final String KEY = "0123456789abcdef";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void initializeSettings() throws IOException {
+        TestSettings.initialize();
+    }
+
+    @Test
+    public void readsEntriesBackFromDisk() throws IOException {
+        var imageFile = createImageFile();
+        var scannedImage = createScannedImage(imageFile);
+        var directory = this.folder.newFolder("cache");
+
+        new ScanCache(directory).put(KEY, scannedImage);
+
+        // A new cache has nothing in memory, so the entry is read from the disk
+        var cached = new ScanCache(directory).get(KEY, imageFile);
+        assertTrue(cached.isPresent());
+        assertSameLines(scannedImage, cached.get());
+    }
+
+    @Test
+    public void readsEntriesBackFromMemory() throws IOException {
+        var imageFile = createImageFile();
+        var scannedImage = createScannedImage(imageFile);
+        var cache = new ScanCache(this.folder.newFolder("cache"));
+
+        cache.put(KEY, scannedImage);
+
+        assertSameLines(scannedImage, cache.get(KEY, imageFile).orElseThrow());
+    }
+
+    @Test
+    public void discardsCorruptEntries() throws IOException {
+        var imageFile = createImageFile();
+        var directory = this.folder.newFolder("cache");
+        var entry = new File(directory, KEY + ".scan");
+        Files.write(entry.toPath(), new byte[]{1, 2, 3});
+
+        assertFalse(new ScanCache(directory).get(KEY, imageFile).isPresent());
+        assertFalse(entry.exists());
+    }
+
+    @Test
+    public void clearRemovesEntries() throws IOException {
+        var imageFile = createImageFile();
+        var directory = this.folder.newFolder("cache");
+        var cache = new ScanCache(directory);
+        cache.put(KEY, createScannedImage(imageFile));
+
+        cache.clear();
+
+        assertFalse(cache.get(KEY, imageFile).isPresent());
+        assertFalse(new File(directory, KEY + ".scan").exists());
+    }
+
+    private File createImageFile() throws IOException {
+        var file = this.folder.newFile("image.png");
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file;
+    }
+
+    private static ScannedImage createScannedImage(File imageFile) throws IOException {
+        var scannedImage = new DefaultScannedImage(imageFile, ImageIO.read(imageFile), null);
+        scannedImage.addLine(5, new ArrayList<>(List.of(createLetter('a', 1, 2, 3, 4), createLetter(' ', 5, 2, 6, 4), createLetter('b', 12, 1, 3, 5))));
+        scannedImage.addLine(18, new ArrayList<>(List.of(createLetter('=', 2, 15, 5, 3))));
+        return scannedImage;
+    }
+
+    private static ImageLetter createLetter(char letter, int x, int y, int width, int height) {
+        var imageLetter = new ImageLetter(letter, 0, x, y, width, height, width / (double) height, 0.25D, 0.75D);
+
+        // An uneven pattern with a size that isn't a multiple of 8, so the packing of values is exercised
+        var values = new boolean[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) values[row][column] = (row * 7 + column * 3 + letter) % 3 == 0;
+        }
+
+        imageLetter.setValues(values);
+        return imageLetter;
+    }
+
+    private static void assertSameLines(ScannedImage expected, ScannedImage actual) throws IOException {
+        assertEquals(expected.getLineCount(), actual.getLineCount());
+
+        for (int i = 0; i < expected.getLineCount(); i++) {
+            var expectedEntry = expected.getLineEntry(i);
+            var actualEntry = actual.getLineEntry(i);
+            assertEquals(expectedEntry.getKey(), actualEntry.getKey());
+            assertEquals(expectedEntry.getValue().size(), actualEntry.getValue().size());
+
+            for (int j = 0; j < expectedEntry.getValue().size(); j++) {
+                var expectedLetter = expectedEntry.getValue().get(j);
+                var actualLetter = actualEntry.getValue().get(j);
+
+                assertArrayEquals(getFields(expectedLetter), getFields(actualLetter));
+                assertArrayEquals(expectedLetter.getValues(), actualLetter.getValues());
+            }
+        }
+    }
+
+    // Every written field of a letter, so letters can be compared without listing their fields
+    private static byte[] getFields(ImageLetter imageLetter) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            ImageLetterFields.write(out, imageLetter);
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,25 @@
+package com.uddernetworks.mspaint.settings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class TestSettings {
+
+    private static boolean initialized;
+
+    /**
+     * Initializes the {@link SettingsManager} with a temporary settings file, so tests use the default settings without
+     * touching the user's. Only the first call creates the file.
+     *
+     * @throws IOException If the settings file can't be created
+     */
+    public static synchronized void initialize() throws IOException {
+        if (initialized) return;
+
+        var settings = Files.createTempFile("settings", ".properties").toFile();
+        settings.delete();
+        settings.deleteOnExit();
+        SettingsManager.getInstance().initialize(settings);
+        initialized = true;
+    }
+}
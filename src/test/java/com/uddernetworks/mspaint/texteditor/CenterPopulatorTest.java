@@ -0,0 +1,70 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CenterPopulatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadsCentersOfTheCurrentVersion() throws IOException {
+        var file = writeCenters("{\"version\":2,\"centers\":{\"Verdana\":{\"24\":{\"a\":7,\"b\":0}}}}");
+
+        var centers = new CenterPopulator(null, file).getCenters("Verdana", 24);
+
+        assertNotNull(centers);
+        assertEquals(7, centers.getOrDefault('a', -1));
+        assertEquals(0, centers.getOrDefault('b', -1));
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void discardsCentersOfOtherVersions() throws IOException {
+        var file = writeCenters("{\"version\":1,\"centers\":{\"Verdana\":{\"24\":{\"a\":7}}}}");
+
+        assertNull(new CenterPopulator(null, file).getCenters("Verdana", 24));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void discardsUnversionedCenters() throws IOException {
+        var file = writeCenters("{\"Verdana\":{\"24\":{\"a\":7}}}");
+
+        assertNull(new CenterPopulator(null, file).getCenters("Verdana", 24));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void ignoresUnreadableCenters() throws IOException {
+        var file = writeCenters("{\"version\":");
+
+        assertNull(new CenterPopulator(null, file).getCenters("Verdana", 24));
+    }
+
+    @Test
+    public void startsEmptyWithoutSavedCenters() {
+        var file = new File(this.folder.getRoot(), "centers.json");
+
+        assertNull(new CenterPopulator(null, file).getCenters("Verdana", 24));
+        assertFalse(file.exists());
+    }
+
+    private File writeCenters(String json) throws IOException {
+        var file = new File(this.folder.getRoot(), "centers.json");
+        Files.writeString(file.toPath(), json);
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+package com.uddernetworks.mspaint.texteditor;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GlyphBitmapTest {
+
+    private static final int BLACK = Color.BLACK.getRGB();
+
+    @Test
+    public void trimCropsToInk() {
+        var image = whiteImage(6, 5);
+        image.setRGB(2, 1, BLACK);
+        image.setRGB(4, 3, BLACK);
+
+        var trimmed = GlyphBitmap.of(image).trim();
+
+        assertEquals(3, trimmed.getWidth());
+        assertEquals(3, trimmed.getHeight());
+        assertEquals(BLACK, trimmed.getRGB(0, 0));
+        assertEquals(BLACK, trimmed.getRGB(2, 2));
+        assertEquals(GlyphBitmap.WHITE, trimmed.getRGB(1, 1));
+    }
+
+    @Test
+    public void trimKeepsBlankAndFullBitmaps() {
+        var blank = GlyphBitmap.filled(4, 4, GlyphBitmap.WHITE);
+        assertSame(blank, blank.trim());
+
+        var full = GlyphBitmap.filled(4, 4, BLACK);
+        assertSame(full, full.trim());
+    }
+
+    @Test
+    public void recolorBlendsFromColourToWhite() {
+        var image = whiteImage(2, 1);
+        image.setRGB(0, 0, BLACK);
+
+        var recolored = GlyphBitmap.of(image).recolor(Color.RED);
+
+        assertEquals(Color.RED.getRGB(), recolored.getRGB(0, 0));
+        assertEquals(GlyphBitmap.WHITE, recolored.getRGB(1, 0));
+    }
+
+    @Test
+    public void blitClipsToTarget() {
+        var bitmap = GlyphBitmap.filled(3, 3, BLACK);
+        var target = new int[4 * 4];
+        Arrays.fill(target, GlyphBitmap.WHITE);
+
+        bitmap.blit(target, 4, 4, 2, -1);
+
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                var expected = x >= 2 && y <= 1 ? BLACK : GlyphBitmap.WHITE;
+                assertEquals("Pixel " + x + ", " + y, expected, target[y * 4 + x]);
+            }
+        }
+    }
+
+    @Test
+    public void blitSkipsTransparentPixels() {
+        var image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, BLACK);
+
+        var target = new int[]{GlyphBitmap.WHITE, GlyphBitmap.WHITE};
+        GlyphBitmap.of(image).blit(target, 2, 1, 0, 0);
+
+        assertArrayEquals(new int[]{BLACK, GlyphBitmap.WHITE}, target);
+    }
+
+    @Test
+    public void maskIsCopiedOnEveryCall() {
+        var image = whiteImage(2, 1);
+        image.setRGB(1, 0, BLACK);
+        var bitmap = GlyphBitmap.of(image);
+
+        var mask = bitmap.getMask();
+        assertFalse(mask[0][0]);
+        assertTrue(mask[0][1]);
+
+        mask[0][0] = true;
+        assertNotSame(mask, bitmap.getMask());
+        assertFalse(bitmap.getMask()[0][0]);
+    }
+
+    private static BufferedImage whiteImage(int width, int height) {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) image.setRGB(x, y, GlyphBitmap.WHITE);
+        }
+
+        return image;
+    }
+}